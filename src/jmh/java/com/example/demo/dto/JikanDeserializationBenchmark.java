@@ -0,0 +1,58 @@
+package com.example.demo.dto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Decoding recorded Jikan payloads with the same ObjectMapper configuration
+ * the WebClient codecs use, unknown fields included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JikanDeserializationBenchmark {
+  private ObjectMapper objectMapper;
+  private byte[] anime;
+  private byte[] manga;
+
+  @Setup
+  public void setup() throws IOException {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    anime = read("/jikan/anime-52991.json");
+    manga = read("/jikan/manga-2.json");
+  }
+
+  private static byte[] read(String path) throws IOException {
+    try (InputStream in = JikanDeserializationBenchmark.class.getResourceAsStream(path)) {
+      return in.readAllBytes();
+    }
+  }
+
+  @Benchmark
+  public AnimeAPIResponse anime() throws IOException {
+    return objectMapper.readValue(anime, AnimeAPIResponse.class);
+  }
+
+  @Benchmark
+  public MangaAPIResponse manga() throws IOException {
+    return objectMapper.readValue(manga, MangaAPIResponse.class);
+  }
+}
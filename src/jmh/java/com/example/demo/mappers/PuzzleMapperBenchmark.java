@@ -0,0 +1,106 @@
+package com.example.demo.mappers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.AnimeAnswerDTO;
+import com.example.demo.dto.AnimeHiddenDTO;
+import com.example.demo.dto.RatingAnswerDTO;
+import com.example.demo.dto.VotesDTO;
+import com.example.demo.models.Anime;
+import com.example.demo.models.Anime.AnimeId;
+
+/**
+ * ModelMapper against the static PuzzleMapper for the mappings on the hot
+ * request paths. Run with -prof gc to compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PuzzleMapperBenchmark {
+  private ModelMapper modelMapper;
+  private Anime anime;
+
+  @Setup
+  public void setup() {
+    modelMapper = new ModelMapper();
+    anime = new Anime();
+    anime.setId(new AnimeId("2024-07-01", "anime"));
+    anime.setOneLiner("A one liner");
+    anime.setSummary("A longer summary of the anime");
+    anime.setMalId("52991");
+    anime.setRealVotes(120);
+    anime.setAiVotes(80);
+    anime.setType("TV");
+    anime.setYear(2023);
+    anime.setScore(9.1);
+    anime.setMembers(650000);
+    anime.setGenres(List.of("Adventure", "Drama", "Fantasy"));
+    anime.setName("Sousou no Frieren");
+    anime.setEpisodes(28);
+    anime.setImgUrl("https://cdn.myanimelist.net/images/anime/1015/138006.jpg");
+    anime.setOptions(List.of(9.1, 7.4, 6.2, 8.3));
+    anime.setScores(List.of(10, 20, 30, 40));
+    anime.setFake(false);
+    // Warm the ModelMapper type maps so setup cost is not measured
+    modelMapper.map(anime, AnimeHiddenDTO.class);
+    modelMapper.map(anime, AnimeAnswerDTO.class);
+    modelMapper.map(anime, RatingAnswerDTO.class);
+    modelMapper.map(anime, VotesDTO.class);
+  }
+
+  @Benchmark
+  public AnimeHiddenDTO hiddenModelMapper() {
+    return modelMapper.map(anime, AnimeHiddenDTO.class);
+  }
+
+  @Benchmark
+  public AnimeHiddenDTO hiddenStatic() {
+    return PuzzleMapper.toAnimeHidden(anime);
+  }
+
+  @Benchmark
+  public AnimeAnswerDTO answerModelMapper() {
+    return modelMapper.map(anime, AnimeAnswerDTO.class);
+  }
+
+  @Benchmark
+  public AnimeAnswerDTO answerStatic() {
+    return PuzzleMapper.toAnimeAnswer(anime);
+  }
+
+  @Benchmark
+  public RatingAnswerDTO ratingAnswerModelMapper() {
+    return modelMapper.map(anime, RatingAnswerDTO.class);
+  }
+
+  @Benchmark
+  public RatingAnswerDTO ratingAnswerStatic() {
+    return PuzzleMapper.toRatingAnswer(anime);
+  }
+
+  @Benchmark
+  public VotesDTO votesModelMapper() {
+    return modelMapper.map(anime, VotesDTO.class);
+  }
+
+  @Benchmark
+  public VotesDTO votesStatic() {
+    return PuzzleMapper.toVotes(anime);
+  }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.demo.dto.AnimeAPIResponse;
+import com.example.demo.dto.AnimeAPIResponse.AnimeAPIData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Year parsing used while building puzzles, from the year field and from the
+ * aired string when the year is missing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimeServiceBenchmark {
+  private AnimeAPIData withYear;
+  private AnimeAPIData withoutYear;
+
+  @Setup
+  public void setup() throws IOException {
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    withYear = read(objectMapper, "/jikan/anime-52991.json");
+    withoutYear = read(objectMapper, "/jikan/anime-no-year.json");
+  }
+
+  private static AnimeAPIData read(ObjectMapper objectMapper, String path) throws IOException {
+    try (InputStream in = AnimeServiceBenchmark.class.getResourceAsStream(path)) {
+      return objectMapper.readValue(in, AnimeAPIResponse.class).getData();
+    }
+  }
+
+  @Benchmark
+  public Integer yearFromField() {
+    return AnimeService.getDateOrParseFromAired(withYear);
+  }
+
+  @Benchmark
+  public Integer yearFromAired() {
+    return AnimeService.getDateOrParseFromAired(withoutYear);
+  }
+}
@@ -0,0 +1,86 @@
+package com.example.demo.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rating options and genre subsets per second, from several threads as during
+ * generation. The scores cover the middle of the range and both clamp bounds,
+ * and the larger option count leaves little room, which is where unbounded
+ * rejection sampling with a shared Random spins. That sampler is kept here as
+ * the baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class DecoyEngineBenchmark {
+  private static final Random SHARED = new Random();
+  private static final List<String> GENRES = List.of("Action", "Adventure", "Comedy", "Drama", "Fantasy",
+      "Mystery", "Romance", "Sci-Fi", "Slice of Life", "Supernatural");
+
+  @Param({ "0.0", "6.8", "9.35" })
+  private double score;
+
+  @Param({ "4", "8" })
+  private int amount;
+
+  private SplittableRandom random;
+
+  @Setup
+  public void setup() {
+    random = new SplittableRandom();
+  }
+
+  @Benchmark
+  public List<Double> ratingOptions() {
+    return DecoyEngine.ratingOptions(score, amount, random);
+  }
+
+  @Benchmark
+  public List<Double> ratingOptionsRejectionOnly() {
+    double max = 9.35;
+    double min = 0.0;
+    List<Double> nums = new ArrayList<>();
+    double mean = score + (SHARED.nextBoolean() ? 1 : -1);
+    if (mean > max) {
+      mean = max - 1;
+    } else if (mean < min) {
+      mean = min + 1;
+    }
+    nums.add(score);
+    while (nums.size() < amount) {
+      double test = SHARED.nextGaussian(mean, 1.5);
+      if (nums.stream().allMatch(num -> Math.abs(test - num) >= 0.5) && test > min && test < max) {
+        nums.add((double) Math.round(test * 100) / 100);
+      }
+    }
+    Collections.sort(nums);
+    return nums;
+  }
+
+  @Benchmark
+  public List<String> genres() {
+    return DecoyEngine.genres(GENRES, random);
+  }
+}
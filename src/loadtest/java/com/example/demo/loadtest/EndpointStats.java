@@ -0,0 +1,69 @@
+package com.example.demo.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies and outcomes of one endpoint, recorded from many threads. An
+ * outcome is the status code, or the exception name when no response came
+ * back, and any outcome other than a 2xx or 304 counts as an error.
+ */
+public class EndpointStats {
+  private final String name;
+  // Microseconds, resized as needed so slow outliers are kept rather than clipped
+  private final Histogram latency = new ConcurrentHistogram(3);
+  private final Map<String, LongAdder> outcomes = new ConcurrentSkipListMap<>();
+  private final LongAdder errors = new LongAdder();
+
+  public EndpointStats(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void record(long nanos, int status) {
+    record(nanos, Integer.toString(status), (status < 200 || status >= 300) && status != 304);
+  }
+
+  public void record(long nanos, Throwable error) {
+    record(nanos, error.getClass().getSimpleName(), true);
+  }
+
+  private void record(long nanos, String outcome, boolean error) {
+    latency.recordValue(Math.max(1, nanos / 1_000));
+    outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    if (error) {
+      errors.increment();
+    }
+  }
+
+  // Throughput is over the whole run, so endpoints called later in a session are comparable
+  public Map<String, Object> summary(Duration elapsed) {
+    Map<String, Object> summary = new LinkedHashMap<>();
+    long count = latency.getTotalCount();
+    summary.put("requests", count);
+    summary.put("errors", errors.sum());
+    summary.put("throughput", count * 1000.0 / Math.max(1, elapsed.toMillis()));
+    summary.put("p50Ms", millis(latency.getValueAtPercentile(50)));
+    summary.put("p90Ms", millis(latency.getValueAtPercentile(90)));
+    summary.put("p99Ms", millis(latency.getValueAtPercentile(99)));
+    summary.put("p999Ms", millis(latency.getValueAtPercentile(99.9)));
+    summary.put("maxMs", millis(latency.getMaxValue()));
+    Map<String, Long> counts = new LinkedHashMap<>();
+    outcomes.forEach((outcome, total) -> counts.put(outcome, total.sum()));
+    summary.put("outcomes", counts);
+    return summary;
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+}
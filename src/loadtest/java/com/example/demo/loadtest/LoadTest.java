@@ -0,0 +1,306 @@
+package com.example.demo.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.loadtest.StubServer.Fault;
+import com.example.demo.models.Anime;
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.models.Manga;
+import com.example.demo.models.VoteShard;
+import com.example.demo.services.PuzzleSnapshotService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Boots the app against an embedded Mongo (or mongo-uri) and the Jikan and
+ * siteverify stub, seeds today's puzzles and the days before, then replays the
+ * midnight rush: every player arrives within the ramp, loads the three
+ * puzzles, votes on each and polls the stats. Prints throughput and latency
+ * percentiles per endpoint and writes them to the report file.
+ *
+ * Options are key=value arguments, see {@link #DEFAULTS}.
+ */
+public class LoadTest {
+  static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+  static {
+    DEFAULTS.put("players", "1000");
+    DEFAULTS.put("connections", "200");
+    DEFAULTS.put("ramp", "PT5S");
+    DEFAULTS.put("polls", "5");
+    DEFAULTS.put("poll-interval", "PT2S");
+    DEFAULTS.put("timeout", "PT30S");
+    DEFAULTS.put("days", "7");
+    // Build the snapshot window before the rush, as the warm-up job does before midnight
+    DEFAULTS.put("warm", "true");
+    DEFAULTS.put("reactive", "false");
+    DEFAULTS.put("write-behind", "false");
+    // Counter documents per puzzle, 0 keeps the tallies on the puzzle documents
+    DEFAULTS.put("shards", "0");
+    // Stored stats only, false overlays live Jikan stats on every puzzle read
+    DEFAULTS.put("stats-refresh", "true");
+    // Empty starts an embedded mongod, downloaded on first use
+    DEFAULTS.put("mongo-uri", "");
+    DEFAULTS.put("jikan.latency", "PT0.3S");
+    DEFAULTS.put("jikan.error-rate", "0.01");
+    DEFAULTS.put("jikan.rate-429", "0.02");
+    DEFAULTS.put("captcha.latency", "PT0.1S");
+    DEFAULTS.put("captcha.error-rate", "0");
+    DEFAULTS.put("report", "target/loadtest-report.json");
+  }
+
+  private final Map<String, String> options;
+  private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+  private final String today = LocalDate.now(ZoneOffset.UTC).toString();
+  private WebClient client;
+
+  LoadTest(Map<String, String> options) {
+    this.options = options;
+  }
+
+  public static void main(String[] args) throws IOException {
+    Map<String, String> options = new HashMap<>(DEFAULTS);
+    for (String arg : args) {
+      int split = arg.indexOf('=');
+      if (split < 0 || !DEFAULTS.containsKey(arg.substring(0, split))) {
+        throw new IllegalArgumentException("Unknown option " + arg + ", expected one of " + DEFAULTS.keySet());
+      }
+      options.put(arg.substring(0, split), arg.substring(split + 1));
+    }
+    new LoadTest(options).run();
+    // Netty and mongod client threads would otherwise keep the exec plugin waiting
+    System.exit(0);
+  }
+
+  void run() throws IOException {
+    Fault jikan = new Fault(duration("jikan.latency"), number("jikan.error-rate"), number("jikan.rate-429"));
+    Fault captcha = new Fault(duration("captcha.latency"), number("captcha.error-rate"), 0);
+    try (StubServer stub = new StubServer(jikan, captcha);
+        TransitionWalker.ReachedState<RunningMongodProcess> mongod = options.get("mongo-uri").isBlank()
+            ? Mongod.instance().start(Version.Main.V7_0)
+            : null) {
+      String mongoUri = mongod != null
+          ? "mongodb://" + mongod.current().getServerAddress().getHost() + ":"
+              + mongod.current().getServerAddress().getPort()
+          : options.get("mongo-uri");
+      try (ConfigurableApplicationContext context = boot(stub, mongoUri)) {
+        seed(context.getBean(MongoTemplate.class));
+        if (Boolean.parseBoolean(options.get("warm"))) {
+          context.getBean(PuzzleSnapshotService.class).refresh();
+        }
+        String port = context.getEnvironment().getProperty("local.server.port");
+        ConnectionProvider connections = ConnectionProvider.builder("loadtest")
+            .maxConnections(integer("connections"))
+            .pendingAcquireMaxCount(-1)
+            .build();
+        client = WebClient.builder()
+            .baseUrl("http://127.0.0.1:" + port + "/api")
+            .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+            .build();
+
+        Instant start = Instant.now();
+        Flux.range(0, integer("players")).flatMap(this::player, integer("players")).blockLast();
+        Duration elapsed = Duration.between(start, Instant.now());
+        connections.disposeLater().block();
+        report(elapsed, stub);
+      }
+    }
+  }
+
+  private ConfigurableApplicationContext boot(StubServer stub, String mongoUri) {
+    // Command line arguments, so they win over application.properties
+    List<String> args = new ArrayList<>(List.of(
+        "--server.port=0",
+        "--server.address=127.0.0.1",
+        "--spring.data.mongodb.uri=" + mongoUri,
+        "--spring.data.mongodb.database=loadtest",
+        "--jikan.base-url=" + stub.getBaseUrl() + "/v4",
+        "--recaptcha.verify-url=" + stub.getBaseUrl() + "/siteverify",
+        "--RECAPTCHA_SECRET=loadtest",
+        "--catalog.path=",
+        "--votes.write-behind.enabled=" + options.get("write-behind"),
+        "--votes.shards=" + options.get("shards"),
+        "--stats-refresh.enabled=" + options.get("stats-refresh")));
+    if (Boolean.parseBoolean(options.get("reactive"))) {
+      args.add("--spring.profiles.active=reactive");
+    }
+    return new SpringApplicationBuilder(DemoApplication.class).run(args.toArray(String[]::new));
+  }
+
+  // Today and the days before it in every mode, fresh tallies each run, indexes kept
+  private void seed(MongoTemplate mongoTemplate) {
+    mongoTemplate.remove(new Query(), Anime.class);
+    mongoTemplate.remove(new Query(), Manga.class);
+    mongoTemplate.remove(new Query(), VoteShard.class);
+    LocalDate date = LocalDate.parse(today);
+    for (int i = 0; i < integer("days"); i++) {
+      String day = date.minusDays(i).toString();
+      mongoTemplate.save(anime(new AnimeId(day, "anime")));
+      Anime rating = anime(new AnimeId(day, "rating"));
+      rating.setOptions(List.of(7.12, 8.03, 9.31, 6.45));
+      rating.setScores(new ArrayList<>(List.of(0, 0, 0, 0)));
+      mongoTemplate.save(rating);
+      mongoTemplate.save(manga(new AnimeId(day, "title")));
+    }
+  }
+
+  // The recorded entries, so live stats resolve against the stub
+  private static Anime anime(AnimeId id) {
+    Anime anime = new Anime();
+    anime.setId(id);
+    anime.setMalId("52991");
+    anime.setOneLiner("An elf mage outlives her party and retraces their journey.");
+    anime.setSummary("After the party of heroes defeats the Demon King, the elf mage Frieren sets out again to "
+        + "understand the humans she travelled with, decades after they have grown old.");
+    anime.setName("Sousou no Frieren");
+    anime.setImgUrl("https://cdn.myanimelist.net/images/anime/1015/138006.jpg");
+    anime.setType("TV");
+    anime.setYear(2023);
+    anime.setScore(9.31);
+    anime.setMembers(1000000);
+    anime.setGenres(List.of("Adventure", "Drama", "Fantasy"));
+    anime.setEpisodes(28);
+    anime.setFake(false);
+    anime.setRealVotes(0);
+    anime.setAiVotes(0);
+    return anime;
+  }
+
+  private static Manga manga(AnimeId id) {
+    Manga manga = new Manga();
+    manga.setId(id);
+    manga.setMalId("2");
+    manga.setTitle("Berserk");
+    manga.setImgUrl("https://cdn.myanimelist.net/images/manga/1/157897.jpg");
+    manga.setType("Manga");
+    manga.setPublished("Aug 25, 1989 to ?");
+    manga.setScore(9.47);
+    manga.setMembers(700000);
+    manga.setGenres(List.of("Action", "Adventure", "Drama"));
+    manga.setFake(false);
+    manga.setRealVotes(0);
+    manga.setAiVotes(0);
+    return manga;
+  }
+
+  // One player's session, every captcha token is new so none are served from the verified cache
+  private Mono<Void> player(int player) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long arrival = random.nextLong(Math.max(1, duration("ramp").toMillis()));
+    boolean fake = random.nextBoolean();
+    int ind = random.nextInt(4);
+    return Mono.delay(Duration.ofMillis(arrival))
+        .then(get("GET /anime/{date}", "/anime/" + today))
+        .then(get("GET /rating/{date}", "/rating/" + today))
+        .then(get("GET /title/{date}", "/title/" + today))
+        .then(patch("PATCH /anime/{date}", "/anime/" + today,
+            Map.of("fake", fake, "captchaToken", "loadtest-" + player + "-anime")))
+        .then(patch("PATCH /rating/{date}", "/rating/" + today,
+            Map.of("ind", ind, "captchaToken", "loadtest-" + player + "-rating")))
+        .then(patch("PATCH /title/{date}", "/title/" + today,
+            Map.of("fake", !fake, "captchaToken", "loadtest-" + player + "-title")))
+        .thenMany(Flux.interval(duration("poll-interval")).take(integer("polls"))
+            .concatMap(poll -> Mono.when(
+                get("GET /anime/stats/{date}", "/anime/stats/" + today),
+                get("GET /rating/stats/{date}", "/rating/stats/" + today),
+                get("GET /title/stats/{date}", "/title/stats/" + today))))
+        .then();
+  }
+
+  private Mono<Void> get(String endpoint, String path) {
+    return timed(endpoint, () -> client.get().uri(path));
+  }
+
+  private Mono<Void> patch(String endpoint, String path, Map<String, Object> body) {
+    return timed(endpoint, () -> client.patch().uri(path).contentType(MediaType.APPLICATION_JSON).bodyValue(body));
+  }
+
+  // Failures are recorded and the session goes on, as a player would retry by navigating on
+  private Mono<Void> timed(String endpoint, Supplier<WebClient.RequestHeadersSpec<?>> request) {
+    EndpointStats stats = endpoints.computeIfAbsent(endpoint, EndpointStats::new);
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return request.get()
+          .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+          .timeout(duration("timeout"))
+          .doOnNext(status -> stats.record(System.nanoTime() - start, status))
+          .doOnError(e -> stats.record(System.nanoTime() - start, e))
+          .onErrorResume(e -> Mono.empty())
+          .then();
+    });
+  }
+
+  private void report(Duration elapsed, StubServer stub) throws IOException {
+    Map<String, Object> results = new LinkedHashMap<>();
+    System.out.printf("%nLoad test: %s players in %.1fs%n", options.get("players"), elapsed.toMillis() / 1000.0);
+    System.out.printf("%-26s %9s %7s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s", "p50 ms",
+        "p90 ms", "p99 ms", "max ms");
+    endpoints.values().stream()
+        .sorted((a, b) -> a.getName().compareTo(b.getName()))
+        .forEach(stats -> {
+          Map<String, Object> summary = stats.summary(elapsed);
+          results.put(stats.getName(), summary);
+          System.out.printf("%-26s %9d %7d %9.1f %9.1f %9.1f %9.1f %9.1f   %s%n", stats.getName(),
+              summary.get("requests"), summary.get("errors"), summary.get("throughput"), summary.get("p50Ms"),
+              summary.get("p90Ms"), summary.get("p99Ms"), summary.get("maxMs"), summary.get("outcomes"));
+        });
+    System.out.println("Stub hits: " + stub.getHits());
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("date", today);
+    report.put("options", new TreeMap<>(options));
+    report.put("elapsedMs", elapsed.toMillis());
+    report.put("endpoints", results);
+    report.put("stubHits", stub.getHits());
+    Path path = Path.of(options.get("report"));
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(path.toFile(), report);
+    System.out.println("Report written to " + path.toAbsolutePath());
+  }
+
+  private int integer(String key) {
+    return Integer.parseInt(options.get(key));
+  }
+
+  private double number(String key) {
+    return Double.parseDouble(options.get(key));
+  }
+
+  private Duration duration(String key) {
+    return Duration.parse(options.get(key));
+  }
+}
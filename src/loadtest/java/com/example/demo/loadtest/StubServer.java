@@ -0,0 +1,115 @@
+package com.example.demo.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+/**
+ * Local stand-in for Jikan and reCAPTCHA siteverify, replaying recorded
+ * responses. Every reply waits the configured latency, and a share of them
+ * fail with a 500 or with a 429 and Retry-After, so the rate limiter, circuit
+ * breaker and stored-stats fallbacks are exercised as they are in production.
+ */
+public class StubServer implements AutoCloseable {
+  private static final int PAGE_SIZE = 25;
+
+  // Injected on every reply of one upstream, the rates are fractions of replies
+  public record Fault(Duration latency, double errorRate, double rate429) {
+  }
+
+  private final Map<String, AtomicLong> hits = new ConcurrentSkipListMap<>();
+  private final DisposableServer server;
+
+  public StubServer(Fault jikan, Fault captcha) throws IOException {
+    ObjectMapper objectMapper = new ObjectMapper();
+    String anime = read("/recorded/anime.json");
+    String manga = read("/recorded/manga.json");
+    String siteverify = read("/recorded/siteverify.json");
+    String animePage = page(objectMapper, anime);
+    String mangaPage = page(objectMapper, manga);
+
+    server = HttpServer.create()
+        .host("127.0.0.1")
+        .port(0)
+        .route(routes -> routes
+            .get("/v4/anime/{id}", (request, response) -> reply("jikan anime", jikan, response, anime))
+            .get("/v4/manga/{id}", (request, response) -> reply("jikan manga", jikan, response, manga))
+            .get("/v4/random/anime", (request, response) -> reply("jikan random", jikan, response, anime))
+            .get("/v4/anime", (request, response) -> reply("jikan anime page", jikan, response, animePage))
+            .get("/v4/manga", (request, response) -> reply("jikan manga page", jikan, response, mangaPage))
+            .post("/siteverify", (request, response) -> request.receive().then()
+                .then(reply("siteverify", captcha, response, siteverify))))
+        .bindNow();
+  }
+
+  public String getBaseUrl() {
+    return "http://127.0.0.1:" + server.port();
+  }
+
+  public Map<String, Long> getHits() {
+    Map<String, Long> counts = new ConcurrentSkipListMap<>();
+    hits.forEach((route, count) -> counts.put(route, count.get()));
+    return counts;
+  }
+
+  @Override
+  public void close() {
+    server.disposeNow();
+  }
+
+  private Mono<Void> reply(String route, Fault fault, HttpServerResponse response, String body) {
+    hits.computeIfAbsent(route, key -> new AtomicLong()).incrementAndGet();
+    return Mono.delay(fault.latency()).then(Mono.defer(() -> {
+      double roll = ThreadLocalRandom.current().nextDouble();
+      if (roll < fault.rate429()) {
+        return response.status(HttpResponseStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaderNames.RETRY_AFTER, "1")
+            .send();
+      }
+      if (roll < fault.rate429() + fault.errorRate()) {
+        return response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).send();
+      }
+      return response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+          .sendString(Mono.just(body))
+          .then();
+    }));
+  }
+
+  // A list page of copies of the recorded entry under distinct ids, enough to fill decoy pools
+  private static String page(ObjectMapper objectMapper, String single) throws IOException {
+    ObjectNode entry = (ObjectNode) objectMapper.readTree(single).get("data");
+    ArrayNode data = objectMapper.createArrayNode();
+    for (int i = 0; i < PAGE_SIZE; i++) {
+      data.add(entry.deepCopy().put("mal_id", entry.get("mal_id").asInt() + i));
+    }
+    ObjectNode page = objectMapper.createObjectNode();
+    page.set("data", data);
+    page.putObject("pagination").put("has_next_page", false);
+    return objectMapper.writeValueAsString(page);
+  }
+
+  private static String read(String path) throws IOException {
+    try (InputStream in = StubServer.class.getResourceAsStream(path)) {
+      if (in == null) {
+        throw new IOException("Missing recorded response " + path);
+      }
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
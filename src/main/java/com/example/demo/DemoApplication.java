@@ -2,17 +2,12 @@ package com.example.demo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
-import org.modelmapper.ModelMapper;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class DemoApplication {
-  @Bean
-  public ModelMapper modelMapper() {
-    return new ModelMapper();
-  }
-
   public static void main(String[] args) {
     SpringApplication.run(DemoApplication.class, args);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,440 @@
+package com.example.demo.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.example.demo.models.Anime;
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.models.Manga;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-process copy of the puzzle documents being played, bounded by an
+ * estimate of its memory use and evicted least recently used first. Entries
+ * are stored compactly: summaries and one-liners as UTF-8 shared by every
+ * entry with the same text, genres as codes into a shared dictionary and the
+ * vote tallies as primitive counters. Votes update the counters in place, and
+ * counters older than the stats TTL, or never read as stats, are reloaded so
+ * votes taken by other instances or on vote shards show up.
+ */
+@Component
+public class PuzzleCache {
+  // Object headers, references and map links of an entry, measured roughly
+  private static final int ENTRY_OVERHEAD = 200;
+  private static final int TEXT_OVERHEAD = 80;
+  private static final int NONE = Integer.MIN_VALUE;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${puzzle-cache.max-size:8MB}")
+  private DataSize maxSize;
+
+  @Value("${puzzle-cache.stats-ttl:PT5S}")
+  private Duration statsTtl;
+
+  // Guarded by this, in access order for eviction
+  private final LinkedHashMap<AnimeId, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+  private final Map<ByteBuffer, Text> texts = new HashMap<>();
+  private long bytes;
+
+  private final Map<String, Short> genreCodes = new ConcurrentHashMap<>();
+  private final List<String> genreNames = new CopyOnWriteArrayList<>();
+
+  private Counter hits;
+  private Counter misses;
+  private Counter evictions;
+
+  @PostConstruct
+  void init() {
+    hits = Counter.builder("puzzle.cache.requests").tag("result", "hit").register(meterRegistry);
+    misses = Counter.builder("puzzle.cache.requests").tag("result", "miss").register(meterRegistry);
+    evictions = Counter.builder("puzzle.cache.evictions").register(meterRegistry);
+    Gauge.builder("puzzle.cache.size", this, PuzzleCache::size).register(meterRegistry);
+    Gauge.builder("puzzle.cache.bytes", this, PuzzleCache::bytes).baseUnit("bytes").register(meterRegistry);
+  }
+
+  // The stored document, its tallies may be up to the stats TTL old
+  public Optional<Anime> getAnime(AnimeId id) {
+    return find(id, false).map(entry -> ((AnimeEntry) entry).toAnime());
+  }
+
+  // Only while the tallies are within the stats TTL, otherwise reload them with updateCounters
+  public Optional<Anime> getAnimeStats(AnimeId id) {
+    return find(id, true).map(entry -> ((AnimeEntry) entry).toAnime());
+  }
+
+  public Optional<Manga> getManga(AnimeId id) {
+    return find(id, false).map(entry -> ((MangaEntry) entry).toManga());
+  }
+
+  public Optional<Manga> getMangaStats(AnimeId id) {
+    return find(id, true).map(entry -> ((MangaEntry) entry).toManga());
+  }
+
+  // Full documents only, projections would be cached with missing fields
+  public Anime put(Anime anime) {
+    store(new AnimeEntry(anime, text(anime.getSummary()), text(anime.getOneLiner())));
+    return anime;
+  }
+
+  public Manga put(Manga manga) {
+    store(new MangaEntry(manga));
+    return manga;
+  }
+
+  // Tallies read from the database or returned by an increment, a no-op when not cached
+  public Anime updateCounters(Anime anime) {
+    merge(anime.getId(), counters(anime));
+    return anime;
+  }
+
+  public Manga updateCounters(Manga manga) {
+    merge(manga.getId(), new int[] { orZero(manga.getRealVotes()), orZero(manga.getAiVotes()) });
+    return manga;
+  }
+
+  // Votes were flushed to the database, the next stats read reloads the tallies instead of adding to them
+  public void expireCounters(AnimeId id) {
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(id);
+    }
+    if (entry != null) {
+      entry.countersRead = false;
+    }
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long bytes() {
+    return bytes;
+  }
+
+  private Optional<Entry> find(AnimeId id, boolean currentCounters) {
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(id);
+    }
+    if (entry == null || (currentCounters && (!entry.countersRead
+        || System.nanoTime() - entry.countersAt > statsTtl.toNanos()))) {
+      misses.increment();
+      return Optional.empty();
+    }
+    hits.increment();
+    return Optional.of(entry);
+  }
+
+  // Tallies only grow, so the larger of two reads is the newer one
+  private void merge(AnimeId id, int[] values) {
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(id);
+    }
+    if (entry == null) {
+      return;
+    }
+    for (int i = 0; i < values.length && i < entry.counters.length(); i++) {
+      entry.counters.accumulateAndGet(i, values[i], Math::max);
+    }
+    entry.countersAt = System.nanoTime();
+    entry.countersRead = true;
+  }
+
+  private synchronized void store(Entry entry) {
+    Entry previous = entries.put(entry.id, entry);
+    bytes += entry.bytes;
+    if (previous != null) {
+      // Keep votes counted since the previous copy was read
+      for (int i = 0; i < previous.counters.length() && i < entry.counters.length(); i++) {
+        entry.counters.accumulateAndGet(i, previous.counters.get(i), Math::max);
+      }
+      release(previous);
+    }
+
+    Iterator<Entry> eldest = entries.values().iterator();
+    while (bytes > maxSize.toBytes() && eldest.hasNext()) {
+      Entry evicted = eldest.next();
+      eldest.remove();
+      release(evicted);
+      evictions.increment();
+    }
+  }
+
+  // Guarded by this
+  private void release(Entry entry) {
+    bytes -= entry.bytes;
+    for (byte[] utf8 : entry.texts()) {
+      if (utf8 == null) {
+        continue;
+      }
+      ByteBuffer key = ByteBuffer.wrap(utf8);
+      Text text = texts.get(key);
+      if (text != null && --text.refs == 0) {
+        texts.remove(key);
+        bytes -= TEXT_OVERHEAD + utf8.length;
+      }
+    }
+  }
+
+  // Shared with every entry holding the same text, counted once in the budget
+  private synchronized byte[] text(String value) {
+    if (value == null) {
+      return null;
+    }
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    Text text = texts.computeIfAbsent(ByteBuffer.wrap(utf8), key -> {
+      bytes += TEXT_OVERHEAD + utf8.length;
+      return new Text(utf8);
+    });
+    text.refs++;
+    return text.utf8;
+  }
+
+  private short[] encodeGenres(List<String> genres) {
+    if (genres == null) {
+      return null;
+    }
+    short[] codes = new short[genres.size()];
+    for (int i = 0; i < codes.length; i++) {
+      codes[i] = genreCodes.computeIfAbsent(genres.get(i), name -> {
+        synchronized (genreNames) {
+          genreNames.add(name);
+          return (short) (genreNames.size() - 1);
+        }
+      });
+    }
+    return codes;
+  }
+
+  private List<String> decodeGenres(short[] codes) {
+    if (codes == null) {
+      return null;
+    }
+    List<String> genres = new ArrayList<>(codes.length);
+    for (short code : codes) {
+      genres.add(genreNames.get(code));
+    }
+    return genres;
+  }
+
+  // [realVotes, aiVotes], or the option tallies for rating puzzles
+  private static int[] counters(Anime anime) {
+    if ("rating".equals(anime.getId().getMode())) {
+      List<Integer> scores = anime.getScores() != null ? anime.getScores() : List.of();
+      return scores.stream().mapToInt(PuzzleCache::orZero).toArray();
+    }
+    return new int[] { orZero(anime.getRealVotes()), orZero(anime.getAiVotes()) };
+  }
+
+  private static int orZero(Integer value) {
+    return value == null ? 0 : value;
+  }
+
+  private static int pack(Integer value) {
+    return value == null ? NONE : value;
+  }
+
+  private static Integer unpack(int value) {
+    return value == NONE ? null : value;
+  }
+
+  private static String decode(byte[] utf8) {
+    return utf8 == null ? null : new String(utf8, StandardCharsets.UTF_8);
+  }
+
+  private static int size(String value) {
+    return value == null ? 0 : 40 + value.length();
+  }
+
+  private static class Text {
+    private final byte[] utf8;
+    private int refs;
+
+    private Text(byte[] utf8) {
+      this.utf8 = utf8;
+    }
+  }
+
+  private abstract static class Entry {
+    protected final AnimeId id;
+    protected final String malId;
+    protected final String type;
+    protected final String imgUrl;
+    protected final double score;
+    protected final int members;
+    protected final byte fake;
+    protected final short[] genres;
+    protected final long statsRefreshedAt;
+    protected final AtomicIntegerArray counters;
+    // Set by stats reads, cleared by vote flushes. A stored document's own tallies aren't the totals with shards
+    protected volatile boolean countersRead;
+    protected volatile long countersAt;
+    protected int bytes;
+
+    private Entry(AnimeId id, String malId, String type, String imgUrl, Double score, Integer members,
+        Boolean fake, short[] genres, Instant statsRefreshedAt, int[] counters) {
+      this.id = id;
+      this.malId = malId;
+      this.type = type != null ? type.intern() : null;
+      this.imgUrl = imgUrl;
+      this.score = score != null ? score : Double.NaN;
+      this.members = pack(members);
+      this.fake = (byte) (fake == null ? -1 : fake ? 1 : 0);
+      this.genres = genres;
+      this.statsRefreshedAt = statsRefreshedAt != null ? statsRefreshedAt.toEpochMilli() : Long.MIN_VALUE;
+      this.counters = new AtomicIntegerArray(counters);
+      this.bytes = ENTRY_OVERHEAD + size(id.getDate()) + size(id.getMode()) + size(malId) + size(imgUrl)
+          + (genres != null ? 16 + 2 * genres.length : 0) + 16 + 4 * counters.length;
+    }
+
+    protected byte[][] texts() {
+      return new byte[0][];
+    }
+
+    protected Double score() {
+      return Double.isNaN(score) ? null : score;
+    }
+
+    protected Boolean fake() {
+      return fake == -1 ? null : fake == 1;
+    }
+
+    protected Instant statsRefreshedAt() {
+      return statsRefreshedAt == Long.MIN_VALUE ? null : Instant.ofEpochMilli(statsRefreshedAt);
+    }
+  }
+
+  private class AnimeEntry extends Entry {
+    private final byte[] summary;
+    private final byte[] oneLiner;
+    private final String name;
+    private final int year;
+    private final int episodes;
+    private final double[] options;
+    private final Integer realVotes;
+    private final Integer aiVotes;
+
+    private AnimeEntry(Anime anime, byte[] summary, byte[] oneLiner) {
+      super(anime.getId(), anime.getMalId(), anime.getType(), anime.getImgUrl(), anime.getScore(),
+          anime.getMembers(), anime.getFake(), encodeGenres(anime.getGenres()), anime.getStatsRefreshedAt(),
+          counters(anime));
+      this.summary = summary;
+      this.oneLiner = oneLiner;
+      this.name = anime.getName();
+      this.year = pack(anime.getYear());
+      this.episodes = pack(anime.getEpisodes());
+      this.options = anime.getOptions() != null
+          ? anime.getOptions().stream().mapToDouble(Double::doubleValue).toArray()
+          : null;
+      // Rating puzzles keep their vote fields as stored, usually null
+      this.realVotes = "rating".equals(anime.getId().getMode()) ? anime.getRealVotes() : null;
+      this.aiVotes = "rating".equals(anime.getId().getMode()) ? anime.getAiVotes() : null;
+      bytes += size(name) + (options != null ? 16 + 8 * options.length : 0);
+    }
+
+    @Override
+    protected byte[][] texts() {
+      return new byte[][] { summary, oneLiner };
+    }
+
+    private Anime toAnime() {
+      Anime anime = new Anime();
+      anime.setId(new AnimeId(id.getDate(), id.getMode()));
+      anime.setOneLiner(decode(oneLiner));
+      anime.setSummary(decode(summary));
+      anime.setMalId(malId);
+      anime.setType(type);
+      anime.setYear(unpack(year));
+      anime.setScore(score());
+      anime.setMembers(unpack(members));
+      anime.setGenres(decodeGenres(genres));
+      anime.setName(name);
+      anime.setEpisodes(unpack(episodes));
+      anime.setImgUrl(imgUrl);
+      anime.setFake(fake());
+      anime.setStatsRefreshedAt(statsRefreshedAt());
+      if (options != null) {
+        List<Double> copy = new ArrayList<>(options.length);
+        for (double option : options) {
+          copy.add(option);
+        }
+        anime.setOptions(copy);
+      }
+      if ("rating".equals(id.getMode())) {
+        List<Integer> scores = new ArrayList<>(counters.length());
+        for (int i = 0; i < counters.length(); i++) {
+          scores.add(counters.get(i));
+        }
+        anime.setScores(scores);
+        anime.setRealVotes(realVotes);
+        anime.setAiVotes(aiVotes);
+      } else {
+        anime.setRealVotes(counters.get(0));
+        anime.setAiVotes(counters.get(1));
+      }
+      return anime;
+    }
+  }
+
+  private class MangaEntry extends Entry {
+    private final String title;
+    private final String published;
+    private final int chapters;
+    private final int volumes;
+
+    private MangaEntry(Manga manga) {
+      super(manga.getId(), manga.getMalId(), manga.getType(), manga.getImgUrl(), manga.getScore(),
+          manga.getMembers(), manga.getFake(), encodeGenres(manga.getGenres()), manga.getStatsRefreshedAt(),
+          new int[] { orZero(manga.getRealVotes()), orZero(manga.getAiVotes()) });
+      this.title = manga.getTitle();
+      this.published = manga.getPublished();
+      this.chapters = pack(manga.getChapters());
+      this.volumes = pack(manga.getVolumes());
+      bytes += size(title) + size(published);
+    }
+
+    private Manga toManga() {
+      Manga manga = new Manga();
+      manga.setId(new AnimeId(id.getDate(), id.getMode()));
+      manga.setMalId(malId);
+      manga.setRealVotes(counters.get(0));
+      manga.setAiVotes(counters.get(1));
+      manga.setType(type);
+      manga.setPublished(published);
+      manga.setScore(score());
+      manga.setMembers(unpack(members));
+      manga.setGenres(decodeGenres(genres));
+      manga.setTitle(title);
+      manga.setChapters(unpack(chapters));
+      manga.setVolumes(unpack(volumes));
+      manga.setImgUrl(imgUrl);
+      manga.setFake(fake());
+      manga.setStatsRefreshedAt(statsRefreshedAt());
+      return manga;
+    }
+  }
+}
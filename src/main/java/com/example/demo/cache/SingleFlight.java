@@ -0,0 +1,76 @@
+package com.example.demo.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Coalesces concurrent identical lookups. The first caller for a key is the
+ * leader and runs the load, callers arriving while it is in flight wait for
+ * it and get the same result or error. Nothing is kept once the load
+ * completes, so only overlapping calls are merged and results are never
+ * reused later. A caller that gives up does not cancel the load for the
+ * others. Leader and coalesced calls are counted as single.flight.calls.
+ */
+public class SingleFlight<K, V> {
+  private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final Counter leaders;
+  private final Counter coalesced;
+
+  public SingleFlight(String name, MeterRegistry meterRegistry) {
+    leaders = Counter.builder("single.flight.calls").tags("flight", name, "role", "leader")
+        .register(meterRegistry);
+    coalesced = Counter.builder("single.flight.calls").tags("flight", name, "role", "coalesced")
+        .register(meterRegistry);
+  }
+
+  // Blocking loads, run on the leader's thread
+  public V call(K key, Supplier<V> loader) {
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+    if (running != null) {
+      coalesced.increment();
+      try {
+        return running.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException cause ? cause : e;
+      }
+    }
+
+    leaders.increment();
+    try {
+      V value = loader.get();
+      future.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, future);
+    }
+  }
+
+  // Reactive loads, subscribed once by the leader, empty results are shared too
+  public Mono<V> callAsync(K key, Supplier<Mono<V>> loader) {
+    return Mono.defer(() -> {
+      CompletableFuture<V> future = new CompletableFuture<>();
+      CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+      if (running != null) {
+        coalesced.increment();
+        return Mono.fromFuture(running, true);
+      }
+
+      leaders.increment();
+      Mono.defer(loader)
+          .doFinally(signal -> inFlight.remove(key, future))
+          .subscribe(future::complete, future::completeExceptionally, () -> future.complete(null));
+      return Mono.fromFuture(future, true);
+    });
+  }
+}
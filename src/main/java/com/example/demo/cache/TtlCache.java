@@ -0,0 +1,134 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Keyed in-process cache with a time-to-live and stale-while-revalidate.
+ * Fresh entries are served directly, stale entries are still served while a
+ * single background refresh replaces them, and misses are loaded inline.
+ * Beyond maxSize an approximately least recently used entry is evicted: the
+ * least recently read of the next few entries, walking the map round-robin,
+ * so reads never take a lock.
+ */
+public class TtlCache<K, V> {
+  private static final int EVICTION_SAMPLE = 8;
+
+  private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+  private final long ttlNanos;
+  private final int maxSize;
+
+  // Where the last eviction stopped, guarded by this
+  private Iterator<Map.Entry<K, Entry<V>>> evictionCursor = Collections.emptyIterator();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder staleHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder refreshes = new LongAdder();
+  private final LongAdder refreshFailures = new LongAdder();
+
+  public TtlCache(Duration ttl, int maxSize) {
+    this.ttlNanos = ttl.toNanos();
+    this.maxSize = maxSize;
+  }
+
+  public Mono<V> get(K key, Function<K, Mono<V>> loader) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      misses.increment();
+      return loader.apply(key).doOnNext(value -> put(key, value));
+    }
+
+    long now = System.nanoTime();
+    entry.readAt = now;
+    if (now - entry.loadedAt < ttlNanos) {
+      hits.increment();
+    } else {
+      staleHits.increment();
+      // Only the first caller to see the stale entry triggers a refresh
+      if (entry.refreshing.compareAndSet(false, true)) {
+        refreshes.increment();
+        loader.apply(key).subscribe(value -> put(key, value), e -> {
+          refreshFailures.increment();
+          entry.refreshing.set(false);
+        }, () -> entry.refreshing.set(false));
+      }
+    }
+    return Mono.just(entry.value);
+  }
+
+  public void put(K key, V value) {
+    entries.put(key, new Entry<>(value, System.nanoTime()));
+    if (entries.size() > maxSize) {
+      evict();
+    }
+  }
+
+  public void invalidate(K key) {
+    entries.remove(key);
+  }
+
+  private synchronized void evict() {
+    while (entries.size() > maxSize) {
+      Map.Entry<K, Entry<V>> victim = null;
+      for (int i = 0; i < EVICTION_SAMPLE; i++) {
+        if (!evictionCursor.hasNext()) {
+          evictionCursor = entries.entrySet().iterator();
+          if (!evictionCursor.hasNext()) {
+            return;
+          }
+        }
+        Map.Entry<K, Entry<V>> candidate = evictionCursor.next();
+        if (victim == null || candidate.getValue().readAt < victim.getValue().readAt) {
+          victim = candidate;
+        }
+      }
+      entries.remove(victim.getKey(), victim.getValue());
+    }
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getStaleHits() {
+    return staleHits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getRefreshes() {
+    return refreshes.sum();
+  }
+
+  public long getRefreshFailures() {
+    return refreshFailures.sum();
+  }
+
+  private static class Entry<V> {
+    private final V value;
+    private final long loadedAt;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile long readAt;
+
+    private Entry(V value, long loadedAt) {
+      this.value = value;
+      this.loadedAt = loadedAt;
+      this.readAt = loadedAt;
+    }
+  }
+}
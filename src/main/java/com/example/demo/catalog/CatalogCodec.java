@@ -0,0 +1,264 @@
+package com.example.demo.catalog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.dto.AnimeAPIResponse.AnimeAPIData;
+import com.example.demo.dto.AnimeAPIResponse.Genre;
+import com.example.demo.dto.AnimeAPIResponse.ImageType;
+import com.example.demo.dto.AnimeAPIResponse.Images;
+import com.example.demo.dto.MangaAPIResponse.MangaAPIData;
+import com.example.demo.dto.MangaAPIResponse.Published;
+
+/**
+ * Binary layout of catalog records. A record is its length followed by
+ * kind, malId, fetch time, the string fields as length-prefixed UTF-8 and the
+ * numbers at fixed width, with sentinels for missing values. Only the fields
+ * used by puzzles are kept, a long synopsis is reduced to a flag.
+ */
+final class CatalogCodec {
+  static final int MAGIC = 0x4a4b4331; // JKC1
+  static final byte ANIME = 1;
+  static final byte MANGA = 2;
+
+  // Offsets inside a record, after the length prefix
+  static final int KIND = 4;
+  static final int MAL_ID = 5;
+  static final int FETCHED_AT = 9;
+  private static final int BODY = 17;
+
+  private static final byte LONG_SYNOPSIS = 1;
+  private static final int NO_INT = Integer.MIN_VALUE;
+  private static final int MIN_SYNOPSIS = 100;
+
+  private CatalogCodec() {
+  }
+
+  static ByteBuffer encode(AnimeAPIData data, long fetchedAt) {
+    Writer writer = new Writer(ANIME, Integer.parseInt(data.getMal_id()), fetchedAt);
+    writer.string(data.getType());
+    writer.string(data.getTitle());
+    writer.string(data.getAired() != null ? data.getAired().getString() : null);
+    writer.integer(data.getYear());
+    writer.decimal(data.getScore());
+    writer.integer(data.getMembers());
+    writer.integer(data.getEpisodes());
+    writer.integer(null);
+    writer.flags(hasLongSynopsis(data) ? LONG_SYNOPSIS : 0);
+    writer.genres(data.getGenres());
+    writer.string(imageUrl(data.getImages()));
+    return writer.finish();
+  }
+
+  static ByteBuffer encode(MangaAPIData data, long fetchedAt) {
+    Writer writer = new Writer(MANGA, Integer.parseInt(data.getMal_id()), fetchedAt);
+    writer.string(data.getType());
+    writer.string(null);
+    writer.string(data.getPublished() != null ? data.getPublished().getString() : null);
+    writer.integer(null);
+    writer.decimal(data.getScore());
+    writer.integer(data.getMembers());
+    writer.integer(data.getChapters());
+    writer.integer(data.getVolumes());
+    writer.flags((byte) 0);
+    writer.genres(data.getGenres());
+    writer.string(imageUrl(data.getImages()));
+    return writer.finish();
+  }
+
+  static AnimeAPIData decodeAnime(ByteBuffer buffer, int offset) {
+    Reader reader = new Reader(buffer, offset);
+    AnimeAPIData data = new AnimeAPIData();
+    data.setMal_id(Integer.toString(buffer.getInt(offset + MAL_ID)));
+    data.setType(reader.string());
+    data.setTitle(reader.string());
+    data.setAired(published(reader.string()));
+    data.setYear(reader.integer());
+    data.setScore(reader.decimal());
+    data.setMembers(reader.integer());
+    data.setEpisodes(reader.integer());
+    reader.integer();
+    reader.flags();
+    data.setGenres(reader.genres());
+    data.setImages(images(reader.string()));
+    return data;
+  }
+
+  static MangaAPIData decodeManga(ByteBuffer buffer, int offset) {
+    Reader reader = new Reader(buffer, offset);
+    MangaAPIData data = new MangaAPIData();
+    data.setMal_id(Integer.toString(buffer.getInt(offset + MAL_ID)));
+    data.setType(reader.string());
+    reader.string();
+    data.setPublished(published(reader.string()));
+    reader.integer();
+    data.setScore(reader.decimal());
+    data.setMembers(reader.integer());
+    data.setChapters(reader.integer());
+    data.setVolumes(reader.integer());
+    reader.flags();
+    data.setGenres(reader.genres());
+    data.setImages(images(reader.string()));
+    return data;
+  }
+
+  // Type as used by the Jikan list filters, e.g. "Light Novel" -> "lightnovel"
+  static String typeKey(String type) {
+    return type != null ? type.replace(" ", "").toLowerCase() : "";
+  }
+
+  static String typeAt(ByteBuffer buffer, int offset) {
+    return new Reader(buffer, offset).string();
+  }
+
+  // Decoys need a score, anime decoys also a synopsis so the anime is not obscure
+  static boolean isDecoy(ByteBuffer buffer, int offset) {
+    Reader reader = new Reader(buffer, offset);
+    reader.string();
+    reader.string();
+    reader.string();
+    reader.integer();
+    Double score = reader.decimal();
+    reader.integer();
+    reader.integer();
+    reader.integer();
+    byte flags = reader.flags();
+    return score != null && (buffer.get(offset + KIND) == MANGA || (flags & LONG_SYNOPSIS) != 0);
+  }
+
+  static boolean hasLongSynopsis(AnimeAPIData data) {
+    return data.getSynopsis() != null && data.getSynopsis().length() > MIN_SYNOPSIS;
+  }
+
+  private static String imageUrl(Images images) {
+    return images != null && images.getJpg() != null ? images.getJpg().getLarge_image_url() : null;
+  }
+
+  private static Images images(String url) {
+    ImageType jpg = new ImageType();
+    jpg.setLarge_image_url(url);
+    Images images = new Images();
+    images.setJpg(jpg);
+    return images;
+  }
+
+  private static Published published(String string) {
+    if (string == null) {
+      return null;
+    }
+    Published published = new Published();
+    published.setString(string);
+    return published;
+  }
+
+  private static class Writer {
+    private ByteBuffer buffer = ByteBuffer.allocate(256);
+
+    private Writer(byte kind, int malId, long fetchedAt) {
+      buffer.putInt(0).put(kind).putInt(malId).putLong(fetchedAt);
+    }
+
+    private void string(String value) {
+      if (value == null) {
+        ensure(2).putShort((short) -1);
+        return;
+      }
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      int length = Math.min(bytes.length, Short.MAX_VALUE);
+      // Cut before a whole character, never between the bytes of one
+      while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+        length--;
+      }
+      ensure(2 + length).putShort((short) length).put(bytes, 0, length);
+    }
+
+    private void integer(Integer value) {
+      ensure(4).putInt(value != null ? value : NO_INT);
+    }
+
+    private void decimal(Double value) {
+      ensure(8).putDouble(value != null ? value : Double.NaN);
+    }
+
+    private void flags(byte flags) {
+      ensure(1).put(flags);
+    }
+
+    private void genres(List<Genre> genres) {
+      int count = genres != null ? Math.min(genres.size(), Byte.MAX_VALUE) : -1;
+      ensure(1).put((byte) count);
+      for (int i = 0; i < count; i++) {
+        string(genres.get(i).getName());
+      }
+    }
+
+    private ByteBuffer ensure(int bytes) {
+      if (buffer.remaining() < bytes) {
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        buffer = grown.put(buffer);
+      }
+      return buffer;
+    }
+
+    private ByteBuffer finish() {
+      buffer.putInt(0, buffer.position() - 4);
+      return buffer.flip();
+    }
+  }
+
+  // Absolute reads only, the mapped buffer is shared between threads
+  private static class Reader {
+    private final ByteBuffer buffer;
+    private int position;
+
+    private Reader(ByteBuffer buffer, int offset) {
+      this.buffer = buffer;
+      this.position = offset + BODY;
+    }
+
+    private String string() {
+      short length = buffer.getShort(position);
+      position += 2;
+      if (length < 0) {
+        return null;
+      }
+      byte[] bytes = new byte[length];
+      buffer.get(position, bytes);
+      position += length;
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Integer integer() {
+      int value = buffer.getInt(position);
+      position += 4;
+      return value != NO_INT ? value : null;
+    }
+
+    private Double decimal() {
+      double value = buffer.getDouble(position);
+      position += 8;
+      return Double.isNaN(value) ? null : value;
+    }
+
+    private byte flags() {
+      return buffer.get(position++);
+    }
+
+    private List<Genre> genres() {
+      byte count = buffer.get(position++);
+      if (count < 0) {
+        return null;
+      }
+      List<Genre> genres = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        Genre genre = new Genre();
+        genre.setName(string());
+        genres.add(genre);
+      }
+      return genres;
+    }
+  }
+}
@@ -0,0 +1,359 @@
+package com.example.demo.catalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.example.demo.dto.AnimeAPIResponse.AnimeAPIData;
+import com.example.demo.dto.MangaAPIResponse.MangaAPIData;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Local mirror of the Jikan fields used by puzzles, kept in an append-only
+ * file and read through a memory-mapped buffer with a malId to offset index.
+ * Every Jikan response is appended, so the catalog fills up from generation
+ * and live traffic, and a dump of Jikan objects can be imported directly. A
+ * newer record for the same malId replaces the older one in the index, the
+ * file is compacted at startup once most records are stale. Appended records
+ * are also copied to a heap buffer and read from there, the file is only
+ * remapped once catalog.append-buffer of them have piled up.
+ */
+@Component
+public class JikanCatalog {
+  private static final Logger log = LoggerFactory.getLogger(JikanCatalog.class);
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  // Disabled when empty
+  @Value("${catalog.path:}")
+  private String path;
+
+  @Value("${catalog.append-buffer:4MB}")
+  private DataSize appendBuffer;
+
+  private final Map<Integer, Integer> anime = new ConcurrentHashMap<>();
+  private final Map<Integer, Integer> manga = new ConcurrentHashMap<>();
+  private final Map<String, List<Integer>> animeDecoys = new ConcurrentHashMap<>();
+  private final Map<String, List<Integer>> mangaDecoys = new ConcurrentHashMap<>();
+
+  // Replaced on remap, index entries are only added once their record is readable through it
+  private volatile View view = new View(ByteBuffer.allocate(0), ByteBuffer.allocate(0));
+  private FileChannel channel;
+  private int appendedBytes;
+  private int records;
+
+  private Counter hits;
+  private Counter misses;
+
+  @PostConstruct
+  void init() {
+    hits = Counter.builder("catalog.requests").tag("result", "hit").register(meterRegistry);
+    misses = Counter.builder("catalog.requests").tag("result", "miss").register(meterRegistry);
+    Gauge.builder("catalog.size", anime, Map::size).tag("kind", "anime").register(meterRegistry);
+    Gauge.builder("catalog.size", manga, Map::size).tag("kind", "manga").register(meterRegistry);
+    if (path.isBlank()) {
+      return;
+    }
+
+    try {
+      open();
+      log.info("Loaded Jikan catalog {} with {} anime and {} manga", path, anime.size(), manga.size());
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not open Jikan catalog {}, continuing without it", path, e);
+      close();
+    }
+  }
+
+  @PreDestroy
+  synchronized void close() {
+    try {
+      if (channel != null) {
+        channel.close();
+      }
+    } catch (IOException e) {
+      log.debug("Could not close Jikan catalog", e);
+    }
+    channel = null;
+  }
+
+  public boolean isEnabled() {
+    return channel != null;
+  }
+
+  // Empty if missing or fetched longer than maxAge ago, any age when maxAge is null
+  public Optional<AnimeAPIData> getAnime(String malId, Duration maxAge) {
+    return find(anime, malId, maxAge, CatalogCodec::decodeAnime);
+  }
+
+  public Optional<MangaAPIData> getManga(String malId, Duration maxAge) {
+    return find(manga, malId, maxAge, CatalogCodec::decodeManga);
+  }
+
+  // Random decoys of a type, empty while the catalog has fewer than minimum of them
+  public List<AnimeAPIData> sampleAnime(String type, int size, int minimum, Random random) {
+    return sample(anime, animeDecoys.get(type), size, minimum, random, CatalogCodec::decodeAnime);
+  }
+
+  public List<MangaAPIData> sampleManga(String type, int size, int minimum, Random random) {
+    return sample(manga, mangaDecoys.get(type), size, minimum, random, CatalogCodec::decodeManga);
+  }
+
+  // Appended in the background, callers may be on event loop threads
+  public void putAnime(List<AnimeAPIData> data) {
+    write(data, item -> CatalogCodec.encode(item, Instant.now().getEpochSecond()));
+  }
+
+  public void putManga(List<MangaAPIData> data) {
+    write(data, item -> CatalogCodec.encode(item, Instant.now().getEpochSecond()));
+  }
+
+  // The index is read before the view, which always covers a record before its offset is indexed
+  private <T> Optional<T> find(Map<Integer, Integer> index, String malId, Duration maxAge,
+      BiFunction<ByteBuffer, Integer, T> decoder) {
+    Integer offset = null;
+    try {
+      offset = malId != null ? index.get(Integer.parseInt(malId)) : null;
+    } catch (NumberFormatException e) {
+      // Not a MyAnimeList id, never stored
+    }
+    View view = this.view;
+    if (offset != null && maxAge != null && view.buffer(offset).getLong(view.position(offset)
+        + CatalogCodec.FETCHED_AT) < Instant.now().minus(maxAge).getEpochSecond()) {
+      offset = null;
+    }
+    (offset != null ? hits : misses).increment();
+    return offset != null ? Optional.of(view.decode(offset, decoder)) : Optional.empty();
+  }
+
+  private <T> List<T> sample(Map<Integer, Integer> index, List<Integer> malIds, int size, int minimum,
+      Random random, BiFunction<ByteBuffer, Integer, T> decoder) {
+    // A snapshot, replaced records are removed from the lists concurrently
+    Integer[] ids = malIds != null ? malIds.toArray(new Integer[0]) : new Integer[0];
+    if (ids.length < minimum || ids.length == 0) {
+      return List.of();
+    }
+    List<Integer> offsets = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      offsets.add(index.get(ids[random.nextInt(ids.length)]));
+    }
+    View view = this.view;
+    return offsets.stream().map(offset -> view.decode(offset, decoder)).toList();
+  }
+
+  private <T> void write(List<T> data, Function<T, ByteBuffer> encoder) {
+    if (!isEnabled() || data == null || data.isEmpty()) {
+      return;
+    }
+    Mono.fromRunnable(() -> append(data, encoder)).subscribeOn(Schedulers.boundedElastic()).subscribe(null,
+        e -> log.warn("Could not append to Jikan catalog", e));
+  }
+
+  private synchronized <T> void append(List<T> data, Function<T, ByteBuffer> encoder) {
+    if (channel == null) {
+      return;
+    }
+    List<ByteBuffer> records = new ArrayList<>();
+    for (T item : data) {
+      try {
+        records.add(encoder.apply(item));
+      } catch (NumberFormatException e) {
+        log.debug("Skipping catalog entry without a MyAnimeList id");
+      }
+    }
+
+    try {
+      int start = (int) channel.size();
+      int length = 0;
+      channel.position(start);
+      for (ByteBuffer record : records) {
+        length += record.remaining();
+        while (record.hasRemaining()) {
+          channel.write(record);
+        }
+      }
+
+      View current = view;
+      if (appendedBytes + length > current.appended.capacity()) {
+        remap(start);
+        return;
+      }
+      int at = appendedBytes;
+      for (ByteBuffer record : records) {
+        current.appended.put(at, record, 0, record.limit());
+        at += record.limit();
+      }
+      index(current.appended, appendedBytes, at, current.mapped.limit());
+      appendedBytes = at;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private synchronized void open() throws IOException {
+    Path file = Path.of(path);
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (channel.size() == 0) {
+      channel.write(ByteBuffer.allocate(4).putInt(CatalogCodec.MAGIC).flip());
+    }
+    ByteBuffer header = ByteBuffer.allocate(4);
+    channel.read(header, 0);
+    if (header.getInt(0) != CatalogCodec.MAGIC) {
+      throw new IOException("Not a Jikan catalog");
+    }
+
+    records = 0;
+    remap(4);
+    if (records > 2 * (anime.size() + manga.size())) {
+      compact(file);
+    }
+  }
+
+  // Maps the whole file and indexes the records from start
+  private void remap(int start) throws IOException {
+    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    view = new View(buffer, ByteBuffer.allocate((int) appendBuffer.toBytes()));
+    appendedBytes = 0;
+    int end = index(buffer, start, buffer.limit(), 0);
+
+    // Drop a record cut short by a crash so later appends stay aligned
+    if (end < buffer.limit()) {
+      log.warn("Truncating {} bytes of incomplete Jikan catalog records", buffer.limit() - end);
+      channel.truncate(end);
+      view = new View(channel.map(FileChannel.MapMode.READ_ONLY, 0, end), view.appended);
+    }
+  }
+
+  // Indexes the complete records between from and to of a buffer starting at file offset base, returns their end
+  private int index(ByteBuffer buffer, int from, int to, int base) {
+    Map<String, List<Integer>> newAnimeDecoys = new HashMap<>();
+    Map<String, List<Integer>> newMangaDecoys = new HashMap<>();
+    int offset = from;
+    while (offset + 4 <= to) {
+      int length = buffer.getInt(offset);
+      if (length < CatalogCodec.FETCHED_AT + 4 || offset + 4 + length > to) {
+        break;
+      }
+      boolean isAnime = buffer.get(offset + CatalogCodec.KIND) == CatalogCodec.ANIME;
+      int malId = buffer.getInt(offset + CatalogCodec.MAL_ID);
+      Integer previous = (isAnime ? anime : manga).put(malId, base + offset);
+      String type = decoyType(buffer, offset);
+      // A newer record may change the type or whether it is a decoy at all
+      String previousType = previous != null ? decoyType(view.buffer(previous), view.position(previous)) : null;
+      if (!Objects.equals(type, previousType)) {
+        Map<String, List<Integer>> newDecoys = isAnime ? newAnimeDecoys : newMangaDecoys;
+        if (previousType != null) {
+          removeDecoy(newDecoys, previousType, malId);
+          removeDecoy(isAnime ? animeDecoys : mangaDecoys, previousType, malId);
+        }
+        if (type != null) {
+          newDecoys.computeIfAbsent(type, key -> new ArrayList<>()).add(malId);
+        }
+      }
+      records++;
+      offset += 4 + length;
+    }
+    newAnimeDecoys.forEach((type, ids) -> animeDecoys.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>())
+        .addAll(ids));
+    newMangaDecoys.forEach((type, ids) -> mangaDecoys.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>())
+        .addAll(ids));
+    return offset;
+  }
+
+  // Type key of a record if it is a decoy, null if not
+  private static String decoyType(ByteBuffer buffer, int offset) {
+    return CatalogCodec.isDecoy(buffer, offset) ? CatalogCodec.typeKey(CatalogCodec.typeAt(buffer, offset)) : null;
+  }
+
+  private static void removeDecoy(Map<String, List<Integer>> decoys, String type, int malId) {
+    List<Integer> malIds = decoys.get(type);
+    if (malIds != null) {
+      malIds.remove(Integer.valueOf(malId));
+    }
+  }
+
+  // Rewrites only the latest record per malId and reopens the file
+  private void compact(Path file) throws IOException {
+    Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+    ByteBuffer buffer = view.mapped;
+    try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      out.write(ByteBuffer.allocate(4).putInt(CatalogCodec.MAGIC).flip());
+      for (Map<Integer, Integer> index : List.of(anime, manga)) {
+        for (int offset : index.values()) {
+          ByteBuffer record = buffer.slice(offset, 4 + buffer.getInt(offset));
+          while (record.hasRemaining()) {
+            out.write(record);
+          }
+        }
+      }
+    }
+    channel.close();
+    Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    anime.clear();
+    manga.clear();
+    animeDecoys.clear();
+    mangaDecoys.clear();
+    channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    records = 0;
+    remap(4);
+    log.info("Compacted Jikan catalog {}", path);
+  }
+
+  // The file as mapped by the last remap, followed by the records appended since
+  private static class View {
+    private final ByteBuffer mapped;
+    private final ByteBuffer appended;
+
+    private View(ByteBuffer mapped, ByteBuffer appended) {
+      this.mapped = mapped;
+      this.appended = appended;
+    }
+
+    private ByteBuffer buffer(int offset) {
+      return offset < mapped.limit() ? mapped : appended;
+    }
+
+    private int position(int offset) {
+      return offset < mapped.limit() ? offset : offset - mapped.limit();
+    }
+
+    private <T> T decode(int offset, BiFunction<ByteBuffer, Integer, T> decoder) {
+      return decoder.apply(buffer(offset), position(offset));
+    }
+  }
+}
@@ -1,13 +1,37 @@
 package com.example.demo.config;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
 @Configuration
 public class WebClientConfig {
+  // Built from Boot's builder so requests are recorded as http.client.requests
+  @Bean
+  @Primary
+  public WebClient localApiClient(WebClient.Builder builder) {
+    return builder.build();
+  }
+
+  // Dedicated keep-alive pool for reCAPTCHA so votes never queue behind Jikan calls
   @Bean
-  public WebClient localApiClient() {
-    return WebClient.create();
+  public WebClient recaptchaClient(WebClient.Builder builder,
+      @Value("${recaptcha.max-connections:50}") int maxConnections,
+      @Value("${recaptcha.timeout:PT2S}") Duration timeout) {
+    ConnectionProvider provider = ConnectionProvider.builder("recaptcha")
+        .maxConnections(maxConnections)
+        .pendingAcquireTimeout(timeout)
+        .maxIdleTime(Duration.ofSeconds(30))
+        .build();
+    HttpClient httpClient = HttpClient.create(provider).responseTimeout(timeout);
+    return builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
   }
 }
@@ -0,0 +1,101 @@
+package com.example.demo.controllers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.catalog.JikanCatalog;
+import com.example.demo.dto.AnimeAPIResponse.AnimeAPIData;
+import com.example.demo.dto.GenerationProgressDTO;
+import com.example.demo.dto.MangaAPIResponse.MangaAPIData;
+import com.example.demo.repositories.VoteShards;
+import com.example.demo.services.PuzzleGenerationService;
+
+// Puzzle generation jobs, catalog imports and the vote shard migration, only available when ADMIN_TOKEN is set
+// and sent as X-Admin-Token
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+  @Autowired
+  private PuzzleGenerationService generationService;
+
+  @Autowired
+  private JikanCatalog catalog;
+
+  @Autowired
+  private VoteShards voteShards;
+
+  @Value("${ADMIN_TOKEN:}")
+  private String adminToken;
+
+  @PostMapping("/generate/{mode:anime|rating|title}")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public GenerationProgressDTO startGeneration(@PathVariable String mode,
+      @RequestHeader(name = "X-Admin-Token", required = false) String token) {
+    requireAdmin(token);
+    return generationService.start(mode);
+  }
+
+  @GetMapping("/generate/{mode:anime|rating|title}")
+  public GenerationProgressDTO getGeneration(@PathVariable String mode,
+      @RequestHeader(name = "X-Admin-Token", required = false) String token) {
+    requireAdmin(token);
+    return generationService.progress(mode);
+  }
+
+  @DeleteMapping("/generate/{mode:anime|rating|title}")
+  public GenerationProgressDTO cancelGeneration(@PathVariable String mode,
+      @RequestHeader(name = "X-Admin-Token", required = false) String token) {
+    requireAdmin(token);
+    return generationService.cancel(mode);
+  }
+
+  // Offline dumps of Jikan objects, e.g. the data arrays of saved list pages
+  @PostMapping("/catalog/anime")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public void importAnime(@RequestBody List<AnimeAPIData> dump,
+      @RequestHeader(name = "X-Admin-Token", required = false) String token) {
+    requireAdmin(token);
+    catalog.putAnime(dump);
+  }
+
+  @PostMapping("/catalog/manga")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public void importManga(@RequestBody List<MangaAPIData> dump,
+      @RequestHeader(name = "X-Admin-Token", required = false) String token) {
+    requireAdmin(token);
+    catalog.putManga(dump);
+  }
+
+  // Copies the stored tallies into shard 0 before votes.shards is set, returning how many puzzles had votes
+  @PostMapping("/votes/fold-shards")
+  public int foldVoteShards(@RequestHeader(name = "X-Admin-Token", required = false) String token) {
+    requireAdmin(token);
+    try {
+      return voteShards.foldIntoShardZero();
+    } catch (IllegalStateException e) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+    }
+  }
+
+  private void requireAdmin(String token) {
+    if (adminToken.isEmpty() || token == null || !MessageDigest.isEqual(
+        adminToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+    }
+  }
+}
@@ -5,15 +5,26 @@ import org.springframework.web.bind.annotation.RestController;
 import com.example.demo.dto.AnimeAnswerDTO;
 import com.example.demo.dto.AnimeHiddenDTO;
 import com.example.demo.dto.AnimeVoteRequest;
+import com.example.demo.dto.ArchiveEntryDTO;
+import com.example.demo.dto.ArchivePageDTO;
 import com.example.demo.dto.RatingAnswerDTO;
 import com.example.demo.dto.RatingDTO;
 import com.example.demo.dto.RatingHiddenDTO;
 import com.example.demo.dto.RatingVoteRequest;
 import com.example.demo.dto.VotesDTO;
+import com.example.demo.models.Anime.AnimeId;
 import com.example.demo.services.AnimeService;
+import com.example.demo.services.ArchiveService;
+import com.example.demo.services.CaptchaService;
+import com.example.demo.services.StatsStreamService;
+import com.example.demo.validation.IsoDate;
 import com.example.demo.validation.NotFutureDate;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -21,8 +32,15 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import reactor.core.publisher.Flux;
 
 @RestController
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "false", matchIfMissing = true)
 @CrossOrigin
 @RequestMapping("/api")
 @Validated
@@ -30,36 +48,94 @@ public class AnimeController {
   @Autowired
   private AnimeService animeService;
 
+  @Autowired
+  private ArchiveService archiveService;
+
+  @Autowired
+  private PuzzleCaching puzzleCaching;
+
+  @Autowired
+  private StatsStreamService statsStreamService;
+
+  @Autowired
+  private CaptchaService captchaService;
+
   @GetMapping("/anime/{date}")
-  public AnimeHiddenDTO getAnimeByDate(@PathVariable @NotFutureDate String date) {
-    return animeService.getAnimeByDate(date);
+  public ResponseEntity<AnimeHiddenDTO> getAnimeByDate(@PathVariable @NotFutureDate String date,
+      WebRequest request) {
+    return puzzleCaching.puzzle(new AnimeId(date, "anime"), request, () -> animeService.getAnimeByDate(date));
   }
 
   @GetMapping("/rating/{date}")
-  public RatingHiddenDTO getRatingByDate(@PathVariable @NotFutureDate String date) {
-    return animeService.getRatingByDate(date);
+  public ResponseEntity<RatingHiddenDTO> getRatingByDate(@PathVariable @NotFutureDate String date,
+      WebRequest request) {
+    return puzzleCaching.puzzle(new AnimeId(date, "rating"), request, () -> animeService.getRatingByDate(date));
   }
 
   @GetMapping("/anime/stats/{date}")
-  public VotesDTO getAnimeStatsByDate(@PathVariable @NotFutureDate String date) {
-    return animeService.getAnimeStatsByDate(date);
+  public ResponseEntity<VotesDTO> getAnimeStatsByDate(@PathVariable @NotFutureDate String date) {
+    return puzzleCaching.stats(animeService.getAnimeStatsByDate(date));
   }
 
   @GetMapping("/rating/stats/{date}")
-  public RatingDTO getRatingStatsByDate(@PathVariable @NotFutureDate String date) {
-    return animeService.getRatingStatsByDate(date);
+  public ResponseEntity<RatingDTO> getRatingStatsByDate(@PathVariable @NotFutureDate String date) {
+    return puzzleCaching.stats(animeService.getRatingStatsByDate(date));
+  }
+
+  // Pushes the tallies whenever they change, instead of polling the stats endpoint
+  @GetMapping(value = "/anime/stats/{date}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<VotesDTO>> streamAnimeStatsByDate(@PathVariable @NotFutureDate String date) {
+    return statsStreamService.streamAnimeStats(date);
+  }
+
+  // Pushes the tallies whenever they change, instead of polling the stats endpoint
+  @GetMapping(value = "/rating/stats/{date}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<RatingDTO>> streamRatingStatsByDate(@PathVariable @NotFutureDate String date) {
+    return statsStreamService.streamRatingStats(date);
   }
 
   @PatchMapping("/anime/{date}")
   public AnimeAnswerDTO voteAnimeByDate(@PathVariable @NotFutureDate String date,
       @RequestBody @Validated AnimeVoteRequest vote) {
-    return animeService.voteAnimeByDate(date, vote);
+    try {
+      return animeService.voteAnimeByDate(date, vote);
+    } catch (RuntimeException e) {
+      captchaService.rememberForRetry(vote.getCaptchaToken());
+      throw e;
+    }
   }
 
   @PatchMapping("/rating/{date}")
   public RatingAnswerDTO voteRatingByDate(@PathVariable @NotFutureDate String date,
       @RequestBody @Validated RatingVoteRequest vote) {
-    return animeService.voteRatingByDate(date, vote);
+    try {
+      return animeService.voteRatingByDate(date, vote);
+    } catch (RuntimeException e) {
+      captchaService.rememberForRetry(vote.getCaptchaToken());
+      throw e;
+    }
+  }
+
+  // Puzzles and stats for a range of dates, newest first
+  @GetMapping("/anime/archive")
+  public ResponseEntity<ArchivePageDTO<ArchiveEntryDTO<AnimeHiddenDTO, VotesDTO>>> getAnimeArchive(
+      @RequestParam(required = false) @IsoDate String from,
+      @RequestParam(required = false) @IsoDate String to,
+      @RequestParam(required = false) @IsoDate String cursor,
+      @RequestParam(defaultValue = "" + ArchiveService.DEFAULT_LIMIT) @Min(1) @Max(ArchiveService.MAX_LIMIT)
+      int limit) {
+    return puzzleCaching.stats(archiveService.getAnimeArchive(from, to, cursor, limit));
+  }
+
+  // Puzzles and stats for a range of dates, newest first
+  @GetMapping("/rating/archive")
+  public ResponseEntity<ArchivePageDTO<ArchiveEntryDTO<RatingHiddenDTO, RatingDTO>>> getRatingArchive(
+      @RequestParam(required = false) @IsoDate String from,
+      @RequestParam(required = false) @IsoDate String to,
+      @RequestParam(required = false) @IsoDate String cursor,
+      @RequestParam(defaultValue = "" + ArchiveService.DEFAULT_LIMIT) @Min(1) @Max(ArchiveService.MAX_LIMIT)
+      int limit) {
+    return puzzleCaching.stats(archiveService.getRatingArchive(from, to, cursor, limit));
   }
 
   // TODO: Do not push to production. This is only here to learn consuming other
@@ -69,29 +145,5 @@ public class AnimeController {
    * public List<String> getUrls() {
    * return animeService.getListOfRandomMALURLs();
    * }
-   * 
-   * // TODO: Do not push to production. This is only here to learn saving to
-   * MongoDB Atlas through Spring Boot.
-   * 
-   * @GetMapping("/createAnime")
-   * public void createAnime() throws IOException {
-   * animeService.createAnime();
-   * }
-   * 
-   * // TODO: Do not push to production. This is only here to learn saving to
-   * MongoDB Atlas through Spring Boot.
-   * 
-   * @GetMapping("/createRating")
-   * public void createRating() throws IOException {
-   * animeService.createRating();
-   * }
-   * 
-   * // TODO: Do not push to production. This is only here to learn saving to
-   * MongoDB Atlas through Spring Boot.
-   * 
-   * @GetMapping("/createTitle")
-   * public void createTitle() throws IOException {
-   * animeService.createTitle();
-   * }
    */
 }
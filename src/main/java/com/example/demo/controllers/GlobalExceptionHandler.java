@@ -1,5 +1,7 @@
 package com.example.demo.controllers;
 
+import java.time.format.DateTimeParseException;
+
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -15,4 +17,11 @@ public class GlobalExceptionHandler {
   ResponseEntity<String> handleConstraintViolationException(ConstraintViolationException e) {
     return new ResponseEntity<>("Validation Error: " + e.getMessage(), HttpStatus.BAD_REQUEST);
   }
+
+  // Well-formed but impossible dates, such as 2024-02-31
+  @ExceptionHandler(DateTimeParseException.class)
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  ResponseEntity<String> handleDateTimeParseException(DateTimeParseException e) {
+    return new ResponseEntity<>("Validation Error: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+  }
 }
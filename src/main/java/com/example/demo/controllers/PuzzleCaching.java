@@ -0,0 +1,119 @@
+package com.example.demo.controllers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.services.PuzzleSnapshotService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+
+/**
+ * ETag and Cache-Control for puzzle responses. Past puzzles never change, so
+ * their ETag is remembered and a matching If-None-Match is answered with 304
+ * before any Mongo or Jikan work. Today's puzzle and stats get a content ETag
+ * and a short max-age.
+ */
+@Component
+public class PuzzleCaching {
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${http-cache.past-max-age:P365D}")
+  private Duration pastMaxAge;
+
+  @Value("${http-cache.today-max-age:PT60S}")
+  private Duration todayMaxAge;
+
+  @Value("${http-cache.stats-max-age:PT10S}")
+  private Duration statsMaxAge;
+
+  // A handful of puzzles per day, small enough to keep for the process lifetime
+  private final Map<AnimeId, String> pastEtags = new ConcurrentHashMap<>();
+
+  private Counter shortCircuits;
+
+  @PostConstruct
+  void init() {
+    shortCircuits = Counter.builder("http.cache.not_modified").register(meterRegistry);
+  }
+
+  public <T> ResponseEntity<T> puzzle(AnimeId id, WebRequest request, Supplier<T> body) {
+    String known = knownEtag(id);
+    if (known != null && request.checkNotModified(known)) {
+      return notModified(known);
+    }
+    return render(id, body.get());
+  }
+
+  public <T> Mono<ResponseEntity<T>> puzzle(AnimeId id, ServerWebExchange exchange, Supplier<Mono<T>> body) {
+    String known = knownEtag(id);
+    if (known != null && exchange.checkNotModified(known)) {
+      return Mono.just(notModified(known));
+    }
+    return body.get().map(value -> render(id, value));
+  }
+
+  // Spring answers a matching If-None-Match with 304 once the ETag is set
+  public <T> ResponseEntity<T> stats(T value) {
+    return ResponseEntity.ok().eTag(etag(value)).cacheControl(maxAge(statsMaxAge)).body(value);
+  }
+
+  private String knownEtag(AnimeId id) {
+    return PuzzleSnapshotService.isPast(id.getDate()) ? pastEtags.get(id) : null;
+  }
+
+  private <T> ResponseEntity<T> notModified(String etag) {
+    shortCircuits.increment();
+    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+        .cacheControl(maxAge(pastMaxAge).immutable()).build();
+  }
+
+  private <T> ResponseEntity<T> render(AnimeId id, T value) {
+    String etag = etag(value);
+    CacheControl cacheControl = maxAge(todayMaxAge);
+    // An empty body means the puzzle does not exist (yet), never cache it for long
+    if (PuzzleSnapshotService.isPast(id.getDate()) && !isEmpty(value)) {
+      pastEtags.put(id, etag);
+      cacheControl = maxAge(pastMaxAge).immutable();
+    }
+    return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(value);
+  }
+
+  private String etag(Object value) {
+    try {
+      return DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(value));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize response for its ETag", e);
+    }
+  }
+
+  private static boolean isEmpty(Object value) {
+    return value.equals(BeanUtils.instantiateClass(value.getClass()));
+  }
+
+  private static CacheControl maxAge(Duration maxAge) {
+    return CacheControl.maxAge(maxAge).cachePublic();
+  }
+}
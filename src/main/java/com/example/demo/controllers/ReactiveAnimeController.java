@@ -0,0 +1,140 @@
+package com.example.demo.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.demo.dto.AnimeAnswerDTO;
+import com.example.demo.dto.AnimeHiddenDTO;
+import com.example.demo.dto.AnimeVoteRequest;
+import com.example.demo.dto.ArchiveEntryDTO;
+import com.example.demo.dto.ArchivePageDTO;
+import com.example.demo.dto.RatingAnswerDTO;
+import com.example.demo.dto.RatingDTO;
+import com.example.demo.dto.RatingHiddenDTO;
+import com.example.demo.dto.RatingVoteRequest;
+import com.example.demo.dto.VotesDTO;
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.services.ArchiveService;
+import com.example.demo.services.CaptchaService;
+import com.example.demo.services.StatsStreamService;
+import com.example.demo.services.ReactiveAnimeService;
+import com.example.demo.services.ReactiveArchiveService;
+import com.example.demo.validation.IsoDate;
+import com.example.demo.validation.NotFutureDate;
+import com.example.demo.validation.ReactiveVoteValidator;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "true")
+@CrossOrigin
+@RequestMapping("/api")
+@Validated
+public class ReactiveAnimeController {
+  @Autowired
+  private ReactiveAnimeService animeService;
+
+  @Autowired
+  private ReactiveArchiveService archiveService;
+
+  @Autowired
+  private PuzzleCaching puzzleCaching;
+
+  @Autowired
+  private StatsStreamService statsStreamService;
+
+  @Autowired
+  private ReactiveVoteValidator voteValidator;
+
+  @Autowired
+  private CaptchaService captchaService;
+
+  @GetMapping("/anime/{date}")
+  public Mono<ResponseEntity<AnimeHiddenDTO>> getAnimeByDate(@PathVariable @NotFutureDate String date,
+      ServerWebExchange exchange) {
+    return puzzleCaching.puzzle(new AnimeId(date, "anime"), exchange, () -> animeService.getAnimeByDate(date));
+  }
+
+  @GetMapping("/rating/{date}")
+  public Mono<ResponseEntity<RatingHiddenDTO>> getRatingByDate(@PathVariable @NotFutureDate String date,
+      ServerWebExchange exchange) {
+    return puzzleCaching.puzzle(new AnimeId(date, "rating"), exchange, () -> animeService.getRatingByDate(date));
+  }
+
+  @GetMapping("/anime/stats/{date}")
+  public Mono<ResponseEntity<VotesDTO>> getAnimeStatsByDate(@PathVariable @NotFutureDate String date) {
+    return animeService.getAnimeStatsByDate(date).map(puzzleCaching::stats);
+  }
+
+  @GetMapping("/rating/stats/{date}")
+  public Mono<ResponseEntity<RatingDTO>> getRatingStatsByDate(@PathVariable @NotFutureDate String date) {
+    return animeService.getRatingStatsByDate(date).map(puzzleCaching::stats);
+  }
+
+  // Pushes the tallies whenever they change, instead of polling the stats endpoint
+  @GetMapping(value = "/anime/stats/{date}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<VotesDTO>> streamAnimeStatsByDate(@PathVariable @NotFutureDate String date) {
+    return statsStreamService.streamAnimeStats(date);
+  }
+
+  // Pushes the tallies whenever they change, instead of polling the stats endpoint
+  @GetMapping(value = "/rating/stats/{date}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<RatingDTO>> streamRatingStatsByDate(@PathVariable @NotFutureDate String date) {
+    return statsStreamService.streamRatingStats(date);
+  }
+
+  // Body is validated here instead of through @Validated, whose captcha check would block
+  @PatchMapping("/anime/{date}")
+  public Mono<AnimeAnswerDTO> voteAnimeByDate(@PathVariable @NotFutureDate String date,
+      @RequestBody AnimeVoteRequest vote) {
+    return voteValidator.validate(vote, vote.getCaptchaToken(), "fake")
+        .then(Mono.defer(() -> animeService.voteAnimeByDate(date, vote)
+            .doOnError(e -> captchaService.rememberForRetry(vote.getCaptchaToken()))));
+  }
+
+  @PatchMapping("/rating/{date}")
+  public Mono<RatingAnswerDTO> voteRatingByDate(@PathVariable @NotFutureDate String date,
+      @RequestBody RatingVoteRequest vote) {
+    return voteValidator.validate(vote, vote.getCaptchaToken(), "ind")
+        .then(Mono.defer(() -> animeService.voteRatingByDate(date, vote)
+            .doOnError(e -> captchaService.rememberForRetry(vote.getCaptchaToken()))));
+  }
+
+  // Puzzles and stats for a range of dates, newest first
+  @GetMapping("/anime/archive")
+  public Mono<ResponseEntity<ArchivePageDTO<ArchiveEntryDTO<AnimeHiddenDTO, VotesDTO>>>> getAnimeArchive(
+      @RequestParam(required = false) @IsoDate String from,
+      @RequestParam(required = false) @IsoDate String to,
+      @RequestParam(required = false) @IsoDate String cursor,
+      @RequestParam(defaultValue = "" + ArchiveService.DEFAULT_LIMIT) @Min(1) @Max(ArchiveService.MAX_LIMIT)
+      int limit) {
+    return archiveService.getAnimeArchive(from, to, cursor, limit).map(puzzleCaching::stats);
+  }
+
+  // Puzzles and stats for a range of dates, newest first
+  @GetMapping("/rating/archive")
+  public Mono<ResponseEntity<ArchivePageDTO<ArchiveEntryDTO<RatingHiddenDTO, RatingDTO>>>> getRatingArchive(
+      @RequestParam(required = false) @IsoDate String from,
+      @RequestParam(required = false) @IsoDate String to,
+      @RequestParam(required = false) @IsoDate String cursor,
+      @RequestParam(defaultValue = "" + ArchiveService.DEFAULT_LIMIT) @Min(1) @Max(ArchiveService.MAX_LIMIT)
+      int limit) {
+    return archiveService.getRatingArchive(from, to, cursor, limit).map(puzzleCaching::stats);
+  }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.demo.dto.AnimeAnswerDTO;
+import com.example.demo.dto.AnimeVoteRequest;
+import com.example.demo.dto.ArchiveEntryDTO;
+import com.example.demo.dto.ArchivePageDTO;
+import com.example.demo.dto.TitleHiddenDTO;
+import com.example.demo.dto.VotesDTO;
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.services.ArchiveService;
+import com.example.demo.services.CaptchaService;
+import com.example.demo.services.StatsStreamService;
+import com.example.demo.services.ReactiveArchiveService;
+import com.example.demo.services.ReactiveTitleService;
+import com.example.demo.validation.IsoDate;
+import com.example.demo.validation.NotFutureDate;
+import com.example.demo.validation.ReactiveVoteValidator;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "true")
+@CrossOrigin
+@RequestMapping("/api/title")
+@Validated
+public class ReactiveTitleController {
+  @Autowired
+  private ReactiveTitleService titleService;
+
+  @Autowired
+  private ReactiveArchiveService archiveService;
+
+  @Autowired
+  private PuzzleCaching puzzleCaching;
+
+  @Autowired
+  private StatsStreamService statsStreamService;
+
+  @Autowired
+  private ReactiveVoteValidator voteValidator;
+
+  @Autowired
+  private CaptchaService captchaService;
+
+  @GetMapping("/{date}")
+  public Mono<ResponseEntity<TitleHiddenDTO>> getTitleByDate(@PathVariable @NotFutureDate String date,
+      ServerWebExchange exchange) {
+    return puzzleCaching.puzzle(new AnimeId(date, "title"), exchange, () -> titleService.getTitleByDate(date));
+  }
+
+  @PatchMapping("/{date}")
+  public Mono<AnimeAnswerDTO> voteTitleByDate(@PathVariable @NotFutureDate String date,
+      @RequestBody AnimeVoteRequest vote) {
+    return voteValidator.validate(vote, vote.getCaptchaToken(), "fake")
+        .then(Mono.defer(() -> titleService.voteTitleByDate(date, vote)
+            .doOnError(e -> captchaService.rememberForRetry(vote.getCaptchaToken()))));
+  }
+
+  @GetMapping("/stats/{date}")
+  public Mono<ResponseEntity<VotesDTO>> getTitleStatsByDate(@PathVariable @NotFutureDate String date) {
+    return titleService.getTitleStatsByDate(date).map(puzzleCaching::stats);
+  }
+
+  // Pushes the tallies whenever they change, instead of polling the stats endpoint
+  @GetMapping(value = "/stats/{date}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<VotesDTO>> streamTitleStatsByDate(@PathVariable @NotFutureDate String date) {
+    return statsStreamService.streamTitleStats(date);
+  }
+
+  // Puzzles and stats for a range of dates, newest first
+  @GetMapping("/archive")
+  public Mono<ResponseEntity<ArchivePageDTO<ArchiveEntryDTO<TitleHiddenDTO, VotesDTO>>>> getTitleArchive(
+      @RequestParam(required = false) @IsoDate String from,
+      @RequestParam(required = false) @IsoDate String to,
+      @RequestParam(required = false) @IsoDate String cursor,
+      @RequestParam(defaultValue = "" + ArchiveService.DEFAULT_LIMIT) @Min(1) @Max(ArchiveService.MAX_LIMIT)
+      int limit) {
+    return archiveService.getTitleArchive(from, to, cursor, limit).map(puzzleCaching::stats);
+  }
+}
@@ -3,6 +3,10 @@ package com.example.demo.controllers;
 import java.time.Instant;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,16 +14,30 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.example.demo.dto.AnimeAnswerDTO;
 import com.example.demo.dto.AnimeVoteRequest;
+import com.example.demo.dto.ArchiveEntryDTO;
+import com.example.demo.dto.ArchivePageDTO;
 import com.example.demo.dto.TitleHiddenDTO;
 import com.example.demo.dto.VotesDTO;
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.services.ArchiveService;
+import com.example.demo.services.CaptchaService;
+import com.example.demo.services.StatsStreamService;
 import com.example.demo.services.TitleService;
+import com.example.demo.validation.IsoDate;
 import com.example.demo.validation.NotFutureDate;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import reactor.core.publisher.Flux;
+
 @RestController
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "false", matchIfMissing = true)
 @CrossOrigin
 @RequestMapping("/api/title")
 @Validated
@@ -27,19 +45,54 @@ public class TitleController {
   @Autowired
   private TitleService titleService;
 
+  @Autowired
+  private ArchiveService archiveService;
+
+  @Autowired
+  private PuzzleCaching puzzleCaching;
+
+  @Autowired
+  private StatsStreamService statsStreamService;
+
+  @Autowired
+  private CaptchaService captchaService;
+
   @GetMapping("/{date}")
-  public TitleHiddenDTO getTitleByDate(@PathVariable @NotFutureDate String date) {
-    return titleService.getTitleByDate(date);
+  public ResponseEntity<TitleHiddenDTO> getTitleByDate(@PathVariable @NotFutureDate String date,
+      WebRequest request) {
+    return puzzleCaching.puzzle(new AnimeId(date, "title"), request, () -> titleService.getTitleByDate(date));
   }
 
   @PatchMapping("/{date}")
   public AnimeAnswerDTO voteTitleByDate(@PathVariable @NotFutureDate String date,
       @RequestBody @Validated AnimeVoteRequest vote) {
-    return titleService.voteTitleByDate(date, vote);
+    try {
+      return titleService.voteTitleByDate(date, vote);
+    } catch (RuntimeException e) {
+      captchaService.rememberForRetry(vote.getCaptchaToken());
+      throw e;
+    }
   }
 
   @GetMapping("/stats/{date}")
-  public VotesDTO getTitleStatsByDate(@PathVariable @NotFutureDate String date) {
-    return titleService.getTitleStatsByDate(date);
+  public ResponseEntity<VotesDTO> getTitleStatsByDate(@PathVariable @NotFutureDate String date) {
+    return puzzleCaching.stats(titleService.getTitleStatsByDate(date));
+  }
+
+  // Pushes the tallies whenever they change, instead of polling the stats endpoint
+  @GetMapping(value = "/stats/{date}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<VotesDTO>> streamTitleStatsByDate(@PathVariable @NotFutureDate String date) {
+    return statsStreamService.streamTitleStats(date);
+  }
+
+  // Puzzles and stats for a range of dates, newest first
+  @GetMapping("/archive")
+  public ResponseEntity<ArchivePageDTO<ArchiveEntryDTO<TitleHiddenDTO, VotesDTO>>> getTitleArchive(
+      @RequestParam(required = false) @IsoDate String from,
+      @RequestParam(required = false) @IsoDate String to,
+      @RequestParam(required = false) @IsoDate String cursor,
+      @RequestParam(defaultValue = "" + ArchiveService.DEFAULT_LIMIT) @Min(1) @Max(ArchiveService.MAX_LIMIT)
+      int limit) {
+    return puzzleCaching.stats(archiveService.getTitleArchive(from, to, cursor, limit));
   }
 }
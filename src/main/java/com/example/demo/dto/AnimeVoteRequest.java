@@ -2,10 +2,12 @@ package com.example.demo.dto;
 
 import com.example.demo.validation.Captcha;
 
+import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
 @Data
 public class AnimeVoteRequest {
+  @NotNull
   private Boolean fake;
 
   @Captcha
@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivePageDTO<E> {
+  private List<E> entries;
+  private String nextCursor; // Pass as cursor for the next (older) page, null on the last page
+}
@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+@Data
+public class GenerationProgressDTO {
+  private String mode;
+  private String state; // IDLE, RUNNING, COMPLETED, FAILED or CANCELLED
+  private Integer total;
+  private Integer skipped; // Already stored by an earlier run
+  private Integer completed;
+  private Integer failed;
+  private Integer remaining;
+  private Double perMinute;
+  private Long etaSeconds;
+  private String startedAt;
+  private String error;
+}
@@ -2,10 +2,17 @@ package com.example.demo.dto;
 
 import com.example.demo.validation.Captcha;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
 @Data
 public class RatingVoteRequest {
+  // Index into the 4 rating options
+  @NotNull
+  @Min(0)
+  @Max(3)
   private Integer ind;
 
   @Captcha
@@ -0,0 +1,165 @@
+package com.example.demo.mappers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.dto.AnimeAnswerDTO;
+import com.example.demo.dto.AnimeHiddenDTO;
+import com.example.demo.dto.RatingAnswerDTO;
+import com.example.demo.dto.RatingDTO;
+import com.example.demo.dto.RatingHiddenDTO;
+import com.example.demo.dto.TitleHiddenDTO;
+import com.example.demo.dto.VotesDTO;
+import com.example.demo.models.Anime;
+import com.example.demo.models.Manga;
+
+/**
+ * Hand-written mappings from the puzzle documents to the DTOs in
+ * com.example.demo.dto. They copy the same same-named fields ModelMapper used
+ * to match, without reflection on the request path. Lists are copied so a DTO
+ * never aliases a document.
+ */
+public final class PuzzleMapper {
+  private PuzzleMapper() {
+  }
+
+  // Hidden puzzles
+  public static AnimeHiddenDTO toAnimeHidden(Anime anime) {
+    AnimeHiddenDTO dto = new AnimeHiddenDTO();
+    dto.setOneLiner(anime.getOneLiner());
+    dto.setSummary(anime.getSummary());
+    dto.setType(anime.getType());
+    dto.setYear(anime.getYear());
+    dto.setMembers(anime.getMembers());
+    dto.setGenres(copy(anime.getGenres()));
+    dto.setEpisodes(anime.getEpisodes());
+    dto.setScore(anime.getScore());
+    return dto;
+  }
+
+  public static RatingHiddenDTO toRatingHidden(Anime anime) {
+    RatingHiddenDTO dto = new RatingHiddenDTO();
+    dto.setOneLiner(anime.getOneLiner());
+    dto.setSummary(anime.getSummary());
+    dto.setType(anime.getType());
+    dto.setYear(anime.getYear());
+    dto.setMembers(anime.getMembers());
+    dto.setGenres(copy(anime.getGenres()));
+    dto.setEpisodes(anime.getEpisodes());
+    dto.setOptions(copy(anime.getOptions()));
+    return dto;
+  }
+
+  public static TitleHiddenDTO toTitleHidden(Manga manga) {
+    TitleHiddenDTO dto = new TitleHiddenDTO();
+    dto.setType(manga.getType());
+    dto.setPublished(manga.getPublished());
+    dto.setScore(manga.getScore());
+    dto.setMembers(manga.getMembers());
+    dto.setGenres(copy(manga.getGenres()));
+    dto.setTitle(manga.getTitle());
+    dto.setChapters(manga.getChapters());
+    dto.setVolumes(manga.getVolumes());
+    return dto;
+  }
+
+  public static AnimeHiddenDTO copy(AnimeHiddenDTO source) {
+    AnimeHiddenDTO dto = new AnimeHiddenDTO();
+    dto.setOneLiner(source.getOneLiner());
+    dto.setSummary(source.getSummary());
+    dto.setType(source.getType());
+    dto.setYear(source.getYear());
+    dto.setMembers(source.getMembers());
+    dto.setGenres(copy(source.getGenres()));
+    dto.setEpisodes(source.getEpisodes());
+    dto.setScore(source.getScore());
+    return dto;
+  }
+
+  public static RatingHiddenDTO copy(RatingHiddenDTO source) {
+    RatingHiddenDTO dto = new RatingHiddenDTO();
+    dto.setOneLiner(source.getOneLiner());
+    dto.setSummary(source.getSummary());
+    dto.setType(source.getType());
+    dto.setYear(source.getYear());
+    dto.setMembers(source.getMembers());
+    dto.setGenres(copy(source.getGenres()));
+    dto.setEpisodes(source.getEpisodes());
+    dto.setOptions(copy(source.getOptions()));
+    return dto;
+  }
+
+  public static TitleHiddenDTO copy(TitleHiddenDTO source) {
+    TitleHiddenDTO dto = new TitleHiddenDTO();
+    dto.setType(source.getType());
+    dto.setPublished(source.getPublished());
+    dto.setScore(source.getScore());
+    dto.setMembers(source.getMembers());
+    dto.setGenres(copy(source.getGenres()));
+    dto.setTitle(source.getTitle());
+    dto.setChapters(source.getChapters());
+    dto.setVolumes(source.getVolumes());
+    return dto;
+  }
+
+  // Stats
+  public static VotesDTO toVotes(Anime anime) {
+    VotesDTO dto = new VotesDTO();
+    dto.setRealVotes(anime.getRealVotes());
+    dto.setAiVotes(anime.getAiVotes());
+    return dto;
+  }
+
+  public static VotesDTO toVotes(Manga manga) {
+    VotesDTO dto = new VotesDTO();
+    dto.setRealVotes(manga.getRealVotes());
+    dto.setAiVotes(manga.getAiVotes());
+    return dto;
+  }
+
+  public static RatingDTO toRating(Anime anime) {
+    RatingDTO dto = new RatingDTO();
+    dto.setScore(anime.getScore());
+    dto.setScores(copy(anime.getScores()));
+    return dto;
+  }
+
+  // Answers
+  public static AnimeAnswerDTO toAnimeAnswer(Anime anime) {
+    AnimeAnswerDTO dto = new AnimeAnswerDTO();
+    dto.setMalId(anime.getMalId());
+    dto.setRealVotes(anime.getRealVotes());
+    dto.setAiVotes(anime.getAiVotes());
+    dto.setName(anime.getName());
+    dto.setImgUrl(anime.getImgUrl());
+    dto.setFake(anime.getFake());
+    return dto;
+  }
+
+  // Manga has no name, the answer shows its title
+  public static AnimeAnswerDTO toAnimeAnswer(Manga manga) {
+    AnimeAnswerDTO dto = new AnimeAnswerDTO();
+    dto.setMalId(manga.getMalId());
+    dto.setRealVotes(manga.getRealVotes());
+    dto.setAiVotes(manga.getAiVotes());
+    dto.setName(manga.getTitle());
+    dto.setImgUrl(manga.getImgUrl());
+    dto.setFake(manga.getFake());
+    return dto;
+  }
+
+  public static RatingAnswerDTO toRatingAnswer(Anime anime) {
+    RatingAnswerDTO dto = new RatingAnswerDTO();
+    dto.setMalId(anime.getMalId());
+    dto.setScore(anime.getScore());
+    dto.setName(anime.getName());
+    dto.setImgUrl(anime.getImgUrl());
+    dto.setOptions(copy(anime.getOptions()));
+    dto.setScores(copy(anime.getScores()));
+    return dto;
+  }
+
+  private static <T> List<T> copy(List<T> list) {
+    return list == null ? null : new ArrayList<>(list);
+  }
+}
@@ -1,5 +1,7 @@
 package com.example.demo.models;
 
+import java.io.Serializable;
+import java.time.Instant;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
@@ -34,6 +36,7 @@ public class Anime {
   private String name;
   private Integer episodes;
   private String imgUrl; // Only for real
+  private Instant statsRefreshedAt; // Last time the stats above were refreshed from MyAnimeList
 
   // Rating mode
   private List<Double> options; // List of size 4 for the score 4 options
@@ -45,7 +48,7 @@ public class Anime {
   @Data
   @NoArgsConstructor
   @AllArgsConstructor
-  public static class AnimeId {
+  public static class AnimeId implements Serializable {
     // Composite key / index
     private String date;
     private String mode; // anime, rating, or lightnovel
@@ -0,0 +1,24 @@
+package com.example.demo.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One per mode, lets an interrupted generation run resume with the same order and dates
+@Data
+@Document(collection = "GenerationCheckpoint")
+@NoArgsConstructor
+@AllArgsConstructor
+public class GenerationCheckpoint {
+  @Id
+  private String mode;
+
+  private Long seed; // Shuffle seed, so a rerun assigns every puzzle the same date
+  private String startDate; // Date of the first puzzle in the run
+  private Integer total;
+  private String createdAt;
+  private String completedAt; // Set once every puzzle is stored, the next run starts a new batch
+}
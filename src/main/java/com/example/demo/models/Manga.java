@@ -1,5 +1,6 @@
 package com.example.demo.models;
 
+import java.time.Instant;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
@@ -35,6 +36,7 @@ public class Manga {
   private Integer chapters;
   private Integer volumes;
   private String imgUrl; // Only for real
+  private Instant statsRefreshedAt; // Last time the stats above were refreshed from MyAnimeList
 
   private Boolean fake;
 }
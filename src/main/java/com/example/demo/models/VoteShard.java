@@ -0,0 +1,34 @@
+package com.example.demo.models;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One of the counter documents of a puzzle when votes are sharded, only ever $inc'ed
+@Data
+@Document(collection = "VoteShard")
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoteShard {
+  @Id
+  private VoteShardId id;
+
+  private Integer realVotes;
+  private Integer aiVotes;
+  private Map<String, Integer> scores; // Keyed by option index, as upserted $inc on scores.N creates it
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class VoteShardId implements Serializable {
+    private String date;
+    private String mode;
+    private Integer shard;
+  }
+}
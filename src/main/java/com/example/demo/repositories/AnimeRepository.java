@@ -8,7 +8,7 @@ import com.example.demo.models.Anime;
 import com.example.demo.models.Anime.AnimeId;
 
 @Repository
-public interface AnimeRepository extends MongoRepository<Anime, AnimeId> {
+public interface AnimeRepository extends MongoRepository<Anime, AnimeId>, AnimeRepositoryCustom {
   @Aggregation(pipeline = {"{ $match: { name: { $exists: true } } }", "{ $sample: { size: 1 } }"})
   Anime findRandomFakeAnime();
 
@@ -0,0 +1,24 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.example.demo.models.Anime;
+import com.example.demo.models.Anime.AnimeId;
+
+public interface AnimeRepositoryCustom {
+  // Atomically $inc aiVotes or realVotes, or those of a random shard, returning the updated answer fields
+  Optional<Anime> incrementVotes(AnimeId id, boolean fake);
+
+  // Atomically $inc scores.ind, or that of a random shard, returning the updated answer fields
+  Optional<Anime> incrementScore(AnimeId id, int ind);
+
+  // Only the vote tallies and score
+  Optional<Anime> findStats(AnimeId id);
+
+  // Only the answer fields and vote tallies
+  Optional<Anime> findAnswer(AnimeId id);
+
+  // Newest first, dates in [from, before), without the answer fields
+  List<Anime> findArchive(String mode, String from, String before, int limit);
+}
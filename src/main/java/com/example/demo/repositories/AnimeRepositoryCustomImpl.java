@@ -0,0 +1,127 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.example.demo.models.Anime;
+import com.example.demo.models.Anime.AnimeId;
+
+public class AnimeRepositoryCustomImpl implements AnimeRepositoryCustom {
+  // Puzzle and stats fields, never the answer (malId, name, imgUrl, fake)
+  static final String[] ARCHIVE_FIELDS = { "oneLiner", "summary", "type", "year", "members", "genres", "episodes",
+      "score", "options", "realVotes", "aiVotes", "scores" };
+
+  // Vote tallies and score, for the stats endpoints
+  static final String[] STATS_FIELDS = { "realVotes", "aiVotes", "scores", "score" };
+
+  // The answer with its tallies, for the vote endpoints
+  static final String[] ANSWER_FIELDS = { "malId", "name", "imgUrl", "fake", "realVotes", "aiVotes", "score",
+      "options", "scores" };
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private VoteShards voteShards;
+
+  @Override
+  public Optional<Anime> incrementVotes(AnimeId id, boolean fake) {
+    if (voteShards.isEnabled()) {
+      return incrementShard(id, fake ? "aiVotes" : "realVotes");
+    }
+    Update update = new Update().inc(fake ? "aiVotes" : "realVotes", 1);
+    return Optional.ofNullable(mongoTemplate.findAndModify(byId(id, ANSWER_FIELDS), update,
+        FindAndModifyOptions.options().returnNew(true), Anime.class));
+  }
+
+  @Override
+  public Optional<Anime> incrementScore(AnimeId id, int ind) {
+    if (voteShards.isEnabled()) {
+      return incrementShard(id, "scores." + ind);
+    }
+    Update update = new Update().inc("scores." + ind, 1);
+    return Optional.ofNullable(mongoTemplate.findAndModify(byId(id, ANSWER_FIELDS), update,
+        FindAndModifyOptions.options().returnNew(true), Anime.class));
+  }
+
+  @Override
+  public Optional<Anime> findStats(AnimeId id) {
+    return withTallies(Optional.ofNullable(mongoTemplate.findOne(byId(id, STATS_FIELDS), Anime.class)));
+  }
+
+  @Override
+  public Optional<Anime> findAnswer(AnimeId id) {
+    return withTallies(Optional.ofNullable(mongoTemplate.findOne(byId(id, ANSWER_FIELDS), Anime.class)));
+  }
+
+  @Override
+  public List<Anime> findArchive(String mode, String from, String before, int limit) {
+    List<Anime> anime = mongoTemplate.find(archive(mode, from, before, limit, ARCHIVE_FIELDS), Anime.class);
+    if (voteShards.isEnabled() && !anime.isEmpty()) {
+      Map<String, long[]> sums = voteShards.sums(mode, anime.stream().map(item -> item.getId().getDate()).toList());
+      anime.forEach(item -> VoteShards.withTallies(item, sums.get(item.getId().getDate())));
+    }
+    return anime;
+  }
+
+  // Only once the puzzle is known to exist, so no shards are created for missing ones
+  private Optional<Anime> incrementShard(AnimeId id, String field) {
+    return voteShards.rollup(id, Anime.class, ANSWER_FIELDS).map(rollup -> {
+      voteShards.increment(id, field);
+      rollup.count(field);
+      return VoteShards.withTallies(rollup.answer(Anime.class), rollup.sums());
+    });
+  }
+
+  private Optional<Anime> withTallies(Optional<Anime> anime) {
+    if (!voteShards.isEnabled()) {
+      return anime;
+    }
+    return anime.map(item -> VoteShards.withTallies(item, voteShards.sum(item.getId())));
+  }
+
+  static Query byId(AnimeId id) {
+    return new Query(Criteria.where("_id").is(id));
+  }
+
+  // Only the given fields are returned
+  static Query byId(AnimeId id, String... fields) {
+    Query query = byId(id);
+    query.fields().include(fields);
+    return query;
+  }
+
+  // Sets every field only when the upsert inserts, so stored puzzles keep their votes
+  static Update insertOnly(MongoConverter converter, Object entity) {
+    Document document = new Document();
+    converter.write(entity, document);
+    document.remove("_id");
+    Update update = new Update();
+    document.forEach(update::setOnInsert);
+    return update;
+  }
+
+  // Range over the (_id.mode, _id.date) index, only the puzzle and stats fields
+  static Query archive(String mode, String from, String before, int limit, String... fields) {
+    Criteria criteria = Criteria.where("_id.mode").is(mode).and("_id.date").lt(before);
+    if (from != null) {
+      criteria = criteria.gte(from);
+    }
+    Query query = new Query(criteria)
+        .with(Sort.by(Sort.Direction.DESC, "_id.date"))
+        .limit(limit);
+    query.fields().include(fields);
+    return query;
+  }
+}
@@ -0,0 +1,10 @@
+package com.example.demo.repositories;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.models.GenerationCheckpoint;
+
+@Repository
+public interface GenerationCheckpointRepository extends ReactiveMongoRepository<GenerationCheckpoint, String> {
+}
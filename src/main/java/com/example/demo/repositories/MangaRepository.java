@@ -7,6 +7,6 @@ import com.example.demo.models.Manga;
 import com.example.demo.models.Anime.AnimeId;
 
 @Repository
-public interface MangaRepository extends MongoRepository<Manga, AnimeId> {
+public interface MangaRepository extends MongoRepository<Manga, AnimeId>, MangaRepositoryCustom {
   long countByIdMode(String mode);
 }
@@ -0,0 +1,21 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.example.demo.models.Manga;
+import com.example.demo.models.Anime.AnimeId;
+
+public interface MangaRepositoryCustom {
+  // Atomically $inc aiVotes or realVotes, or those of a random shard, returning the updated answer fields
+  Optional<Manga> incrementVotes(AnimeId id, boolean fake);
+
+  // Only the vote tallies
+  Optional<Manga> findStats(AnimeId id);
+
+  // Only the answer fields and vote tallies
+  Optional<Manga> findAnswer(AnimeId id);
+
+  // Newest first, dates in [from, before), without the answer fields
+  List<Manga> findArchive(String from, String before, int limit);
+}
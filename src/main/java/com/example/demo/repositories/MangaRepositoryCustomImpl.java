@@ -0,0 +1,78 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.example.demo.models.Manga;
+import com.example.demo.models.Anime.AnimeId;
+
+public class MangaRepositoryCustomImpl implements MangaRepositoryCustom {
+  // Puzzle and stats fields, never the answer (malId, imgUrl, fake)
+  static final String[] ARCHIVE_FIELDS = { "type", "published", "score", "members", "genres", "title", "chapters",
+      "volumes", "realVotes", "aiVotes" };
+
+  static final String[] STATS_FIELDS = { "realVotes", "aiVotes" };
+
+  static final String[] ANSWER_FIELDS = { "malId", "title", "imgUrl", "fake", "realVotes", "aiVotes" };
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private VoteShards voteShards;
+
+  @Override
+  public Optional<Manga> incrementVotes(AnimeId id, boolean fake) {
+    if (voteShards.isEnabled()) {
+      return incrementShard(id, fake ? "aiVotes" : "realVotes");
+    }
+    Update update = new Update().inc(fake ? "aiVotes" : "realVotes", 1);
+    return Optional.ofNullable(mongoTemplate.findAndModify(AnimeRepositoryCustomImpl.byId(id, ANSWER_FIELDS), update,
+        FindAndModifyOptions.options().returnNew(true), Manga.class));
+  }
+
+  @Override
+  public Optional<Manga> findStats(AnimeId id) {
+    return withTallies(Optional.ofNullable(mongoTemplate.findOne(AnimeRepositoryCustomImpl.byId(id, STATS_FIELDS),
+        Manga.class)));
+  }
+
+  @Override
+  public Optional<Manga> findAnswer(AnimeId id) {
+    return withTallies(Optional.ofNullable(mongoTemplate.findOne(AnimeRepositoryCustomImpl.byId(id, ANSWER_FIELDS),
+        Manga.class)));
+  }
+
+  @Override
+  public List<Manga> findArchive(String from, String before, int limit) {
+    List<Manga> manga = mongoTemplate.find(AnimeRepositoryCustomImpl.archive("title", from, before, limit,
+        ARCHIVE_FIELDS), Manga.class);
+    if (voteShards.isEnabled() && !manga.isEmpty()) {
+      Map<String, long[]> sums = voteShards.sums("title", manga.stream().map(item -> item.getId().getDate()).toList());
+      manga.forEach(item -> VoteShards.withTallies(item, sums.get(item.getId().getDate())));
+    }
+    return manga;
+  }
+
+  // Only once the puzzle is known to exist, so no shards are created for missing ones
+  private Optional<Manga> incrementShard(AnimeId id, String field) {
+    return voteShards.rollup(id, Manga.class, ANSWER_FIELDS).map(rollup -> {
+      voteShards.increment(id, field);
+      rollup.count(field);
+      return VoteShards.withTallies(rollup.answer(Manga.class), rollup.sums());
+    });
+  }
+
+  private Optional<Manga> withTallies(Optional<Manga> manga) {
+    if (!voteShards.isEnabled()) {
+      return manga;
+    }
+    return manga.map(item -> VoteShards.withTallies(item, voteShards.sum(item.getId())));
+  }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+
+import com.example.demo.models.Anime;
+import com.example.demo.models.Anime.AnimeId;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveAnimeRepositoryCustom {
+  // Atomically $inc aiVotes or realVotes, or those of a random shard, returning the updated answer fields
+  Mono<Anime> incrementVotes(AnimeId id, boolean fake);
+
+  // Atomically $inc scores.ind, or that of a random shard, returning the updated answer fields
+  Mono<Anime> incrementScore(AnimeId id, int ind);
+
+  // Newest first, dates in [from, before), without the answer fields
+  Flux<Anime> findArchive(String mode, String from, String before, int limit);
+
+  // Only the vote tallies and score
+  Mono<Anime> findStats(AnimeId id);
+
+  // Only the answer fields and vote tallies
+  Mono<Anime> findAnswer(AnimeId id);
+
+  // Unordered bulk upsert by id that only inserts missing puzzles, returning how many were inserted
+  Mono<Integer> upsertAll(List<Anime> anime);
+}
@@ -0,0 +1,102 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.example.demo.models.Anime;
+import com.example.demo.models.Anime.AnimeId;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReactiveAnimeRepositoryCustomImpl implements ReactiveAnimeRepositoryCustom {
+  @Autowired
+  private ReactiveMongoTemplate mongoTemplate;
+
+  @Autowired
+  private VoteShards voteShards;
+
+  @Override
+  public Mono<Anime> incrementVotes(AnimeId id, boolean fake) {
+    if (voteShards.isEnabled()) {
+      return incrementShard(id, fake ? "aiVotes" : "realVotes");
+    }
+    Update update = new Update().inc(fake ? "aiVotes" : "realVotes", 1);
+    return mongoTemplate.findAndModify(AnimeRepositoryCustomImpl.byId(id, AnimeRepositoryCustomImpl.ANSWER_FIELDS),
+        update, FindAndModifyOptions.options().returnNew(true), Anime.class);
+  }
+
+  @Override
+  public Mono<Anime> incrementScore(AnimeId id, int ind) {
+    if (voteShards.isEnabled()) {
+      return incrementShard(id, "scores." + ind);
+    }
+    Update update = new Update().inc("scores." + ind, 1);
+    return mongoTemplate.findAndModify(AnimeRepositoryCustomImpl.byId(id, AnimeRepositoryCustomImpl.ANSWER_FIELDS),
+        update, FindAndModifyOptions.options().returnNew(true), Anime.class);
+  }
+
+  @Override
+  public Flux<Anime> findArchive(String mode, String from, String before, int limit) {
+    Flux<Anime> anime = mongoTemplate.find(AnimeRepositoryCustomImpl.archive(mode, from, before, limit,
+        AnimeRepositoryCustomImpl.ARCHIVE_FIELDS), Anime.class);
+    if (!voteShards.isEnabled()) {
+      return anime;
+    }
+    return anime.collectList()
+        .filter(page -> !page.isEmpty())
+        .flatMapMany(page -> voteShards.sumsAsync(mode, page.stream().map(item -> item.getId().getDate()).toList())
+            .flatMapIterable(sums -> {
+              page.forEach(item -> VoteShards.withTallies(item, sums.get(item.getId().getDate())));
+              return page;
+            }));
+  }
+
+  @Override
+  public Mono<Anime> findStats(AnimeId id) {
+    return withTallies(mongoTemplate.findOne(AnimeRepositoryCustomImpl.byId(id,
+        AnimeRepositoryCustomImpl.STATS_FIELDS), Anime.class));
+  }
+
+  @Override
+  public Mono<Anime> findAnswer(AnimeId id) {
+    return withTallies(mongoTemplate.findOne(AnimeRepositoryCustomImpl.byId(id,
+        AnimeRepositoryCustomImpl.ANSWER_FIELDS), Anime.class));
+  }
+
+  @Override
+  public Mono<Integer> upsertAll(List<Anime> anime) {
+    if (anime.isEmpty()) {
+      return Mono.just(0);
+    }
+    ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, Anime.class);
+    for (Anime item : anime) {
+      bulk.upsert(AnimeRepositoryCustomImpl.byId(item.getId()),
+          AnimeRepositoryCustomImpl.insertOnly(mongoTemplate.getConverter(), item));
+    }
+    return bulk.execute().map(result -> result.getUpserts().size());
+  }
+
+  // Only once the puzzle is known to exist, so no shards are created for missing ones
+  private Mono<Anime> incrementShard(AnimeId id, String field) {
+    return voteShards.rollupAsync(id, Anime.class, AnimeRepositoryCustomImpl.ANSWER_FIELDS)
+        .flatMap(rollup -> voteShards.incrementAsync(id, field)
+            .then(Mono.fromSupplier(() -> {
+              rollup.count(field);
+              return VoteShards.withTallies(rollup.answer(Anime.class), rollup.sums());
+            })));
+  }
+
+  private Mono<Anime> withTallies(Mono<Anime> anime) {
+    if (!voteShards.isEnabled()) {
+      return anime;
+    }
+    return anime.flatMap(item -> voteShards.sumAsync(item.getId()).map(sums -> VoteShards.withTallies(item, sums)));
+  }
+}
@@ -0,0 +1,15 @@
+package com.example.demo.repositories;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.models.Manga;
+import com.example.demo.models.Anime.AnimeId;
+
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactiveMangaRepository extends ReactiveMongoRepository<Manga, AnimeId>,
+    ReactiveMangaRepositoryCustom {
+  Mono<Long> countByIdMode(String mode);
+}
@@ -0,0 +1,26 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+
+import com.example.demo.models.Manga;
+import com.example.demo.models.Anime.AnimeId;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveMangaRepositoryCustom {
+  // Atomically $inc aiVotes or realVotes, or those of a random shard, returning the updated answer fields
+  Mono<Manga> incrementVotes(AnimeId id, boolean fake);
+
+  // Newest first, dates in [from, before), without the answer fields
+  Flux<Manga> findArchive(String from, String before, int limit);
+
+  // Only the vote tallies
+  Mono<Manga> findStats(AnimeId id);
+
+  // Only the answer fields and vote tallies
+  Mono<Manga> findAnswer(AnimeId id);
+
+  // Unordered bulk upsert by id that only inserts missing puzzles, returning how many were inserted
+  Mono<Integer> upsertAll(List<Manga> manga);
+}
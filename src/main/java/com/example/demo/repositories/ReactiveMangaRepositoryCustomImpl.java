@@ -0,0 +1,92 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.example.demo.models.Manga;
+import com.example.demo.models.Anime.AnimeId;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReactiveMangaRepositoryCustomImpl implements ReactiveMangaRepositoryCustom {
+  @Autowired
+  private ReactiveMongoTemplate mongoTemplate;
+
+  @Autowired
+  private VoteShards voteShards;
+
+  @Override
+  public Mono<Manga> incrementVotes(AnimeId id, boolean fake) {
+    if (voteShards.isEnabled()) {
+      return incrementShard(id, fake ? "aiVotes" : "realVotes");
+    }
+    Update update = new Update().inc(fake ? "aiVotes" : "realVotes", 1);
+    return mongoTemplate.findAndModify(AnimeRepositoryCustomImpl.byId(id, MangaRepositoryCustomImpl.ANSWER_FIELDS),
+        update, FindAndModifyOptions.options().returnNew(true), Manga.class);
+  }
+
+  @Override
+  public Flux<Manga> findArchive(String from, String before, int limit) {
+    Flux<Manga> manga = mongoTemplate.find(AnimeRepositoryCustomImpl.archive("title", from, before, limit,
+        MangaRepositoryCustomImpl.ARCHIVE_FIELDS), Manga.class);
+    if (!voteShards.isEnabled()) {
+      return manga;
+    }
+    return manga.collectList()
+        .filter(page -> !page.isEmpty())
+        .flatMapMany(page -> voteShards.sumsAsync("title", page.stream().map(item -> item.getId().getDate()).toList())
+            .flatMapIterable(sums -> {
+              page.forEach(item -> VoteShards.withTallies(item, sums.get(item.getId().getDate())));
+              return page;
+            }));
+  }
+
+  @Override
+  public Mono<Manga> findStats(AnimeId id) {
+    return withTallies(mongoTemplate.findOne(AnimeRepositoryCustomImpl.byId(id,
+        MangaRepositoryCustomImpl.STATS_FIELDS), Manga.class));
+  }
+
+  @Override
+  public Mono<Manga> findAnswer(AnimeId id) {
+    return withTallies(mongoTemplate.findOne(AnimeRepositoryCustomImpl.byId(id,
+        MangaRepositoryCustomImpl.ANSWER_FIELDS), Manga.class));
+  }
+
+  @Override
+  public Mono<Integer> upsertAll(List<Manga> manga) {
+    if (manga.isEmpty()) {
+      return Mono.just(0);
+    }
+    ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, Manga.class);
+    for (Manga item : manga) {
+      bulk.upsert(AnimeRepositoryCustomImpl.byId(item.getId()),
+          AnimeRepositoryCustomImpl.insertOnly(mongoTemplate.getConverter(), item));
+    }
+    return bulk.execute().map(result -> result.getUpserts().size());
+  }
+
+  // Only once the puzzle is known to exist, so no shards are created for missing ones
+  private Mono<Manga> incrementShard(AnimeId id, String field) {
+    return voteShards.rollupAsync(id, Manga.class, MangaRepositoryCustomImpl.ANSWER_FIELDS)
+        .flatMap(rollup -> voteShards.incrementAsync(id, field)
+            .then(Mono.fromSupplier(() -> {
+              rollup.count(field);
+              return VoteShards.withTallies(rollup.answer(Manga.class), rollup.sums());
+            })));
+  }
+
+  private Mono<Manga> withTallies(Mono<Manga> manga) {
+    if (!voteShards.isEnabled()) {
+      return manga;
+    }
+    return manga.flatMap(item -> voteShards.sumAsync(item.getId()).map(sums -> VoteShards.withTallies(item, sums)));
+  }
+}
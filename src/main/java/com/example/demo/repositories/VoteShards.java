@@ -0,0 +1,338 @@
+package com.example.demo.repositories;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.models.Anime;
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.models.Manga;
+import com.example.demo.models.VoteShard;
+import com.example.demo.models.VoteShard.VoteShardId;
+import com.example.demo.services.VoteAggregator;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Optional sharded layout of the vote tallies. With votes.shards=K above zero
+ * a vote increments one of K counter documents of its puzzle in the VoteShard
+ * collection, picked at random, instead of the puzzle document, so the votes
+ * on today's puzzle no longer queue on one document. A puzzle's tallies are
+ * the sum of its shards, one aggregation over the (_id.mode, _id.date) index
+ * for a single puzzle or a whole archive page. A vote is a single upsert, the
+ * tallies it answers with come from a rollup of the puzzle cached for
+ * votes.shards.rollup-ttl plus the votes this instance cast since, reloaded
+ * by one caller while the others keep using it. The tallies stored before
+ * the switch are copied into shard 0 by foldIntoShardZero, run once while
+ * votes still go to the puzzle documents.
+ */
+@Component
+public class VoteShards {
+  private static final int FOLD_BATCH = 500;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private ReactiveMongoTemplate reactiveMongoTemplate;
+
+  @Value("${votes.shards:0}")
+  private int shards;
+
+  @Value("${votes.shards.rollup-ttl:PT1S}")
+  private Duration rollupTtl;
+
+  private final Map<AnimeId, Rollup> rollups = new ConcurrentHashMap<>();
+
+  public boolean isEnabled() {
+    return shards > 0;
+  }
+
+  // The first vote that lands on a shard creates it
+  public Query randomShard(AnimeId id) {
+    return shard(id, ThreadLocalRandom.current().nextInt(shards));
+  }
+
+  public void increment(AnimeId id, String field) {
+    mongoTemplate.upsert(randomShard(id), new Update().inc(field, 1), VoteShard.class);
+  }
+
+  public Mono<Void> incrementAsync(AnimeId id, String field) {
+    return reactiveMongoTemplate.upsert(randomShard(id), new Update().inc(field, 1), VoteShard.class).then();
+  }
+
+  // The puzzle's answer fields and summed tallies, empty if there is no such puzzle
+  public Optional<Rollup> rollup(AnimeId id, Class<?> type, String... fields) {
+    Rollup rollup = rollups.get(id);
+    if (rollup != null && !rollup.claimRefresh(rollupTtl)) {
+      return Optional.of(rollup);
+    }
+    try {
+      Document answer = mongoTemplate.findOne(answerQuery(id, fields), Document.class,
+          mongoTemplate.getCollectionName(type));
+      return Optional.ofNullable(store(id, answer, answer != null ? sum(id) : null));
+    } catch (RuntimeException e) {
+      if (rollup != null) {
+        rollup.refreshing.set(false);
+      }
+      throw e;
+    }
+  }
+
+  public Mono<Rollup> rollupAsync(AnimeId id, Class<?> type, String... fields) {
+    Rollup rollup = rollups.get(id);
+    if (rollup != null && !rollup.claimRefresh(rollupTtl)) {
+      return Mono.just(rollup);
+    }
+    return reactiveMongoTemplate.findOne(answerQuery(id, fields), Document.class,
+        reactiveMongoTemplate.getCollectionName(type))
+        .flatMap(answer -> sumAsync(id).map(sums -> store(id, answer, sums)))
+        .switchIfEmpty(Mono.fromRunnable(() -> rollups.remove(id)))
+        .doOnError(e -> {
+          if (rollup != null) {
+            rollup.refreshing.set(false);
+          }
+        });
+  }
+
+  @Scheduled(fixedDelayString = "${votes.shards.rollup-ttl:PT1S}")
+  void evictRollups() {
+    long now = System.nanoTime();
+    rollups.values().removeIf(rollup -> now - rollup.loadedAt > 2 * rollupTtl.toNanos());
+  }
+
+  // Summed tallies of one puzzle, in VoteAggregator slot order
+  public long[] sum(AnimeId id) {
+    return sums(id.getMode(), List.of(id.getDate())).getOrDefault(id.getDate(), new long[slots(id.getMode())]);
+  }
+
+  public Mono<long[]> sumAsync(AnimeId id) {
+    return sumsAsync(id.getMode(), List.of(id.getDate()))
+        .map(sums -> sums.getOrDefault(id.getDate(), new long[slots(id.getMode())]));
+  }
+
+  // Summed tallies by date, dates without any shard are left out
+  public Map<String, long[]> sums(String mode, Collection<String> dates) {
+    Map<String, long[]> sums = new HashMap<>();
+    for (Document group : mongoTemplate.aggregate(aggregation(mode, dates), collection(), Document.class)) {
+      sums.put(group.getString("_id"), slots(mode, group));
+    }
+    return sums;
+  }
+
+  public Mono<Map<String, long[]>> sumsAsync(String mode, Collection<String> dates) {
+    return reactiveMongoTemplate.aggregate(aggregation(mode, dates), collection(), Document.class)
+        .collectMap(group -> group.getString("_id"), group -> slots(mode, group));
+  }
+
+  // Replaces the stored tallies with the summed ones, zero when no vote has landed yet
+  public static Anime withTallies(Anime anime, long[] sums) {
+    if (sums == null) {
+      sums = new long[slots(anime.getId().getMode())];
+    }
+    if (isRating(anime.getId().getMode())) {
+      List<Integer> scores = new ArrayList<>(sums.length);
+      for (long sum : sums) {
+        scores.add((int) sum);
+      }
+      anime.setScores(scores);
+    } else {
+      anime.setRealVotes((int) sums[0]);
+      anime.setAiVotes((int) sums[1]);
+    }
+    return anime;
+  }
+
+  public static Manga withTallies(Manga manga, long[] sums) {
+    manga.setRealVotes(sums != null ? (int) sums[0] : 0);
+    manga.setAiVotes(sums != null ? (int) sums[1] : 0);
+    return manga;
+  }
+
+  /**
+   * Copies the tallies of every puzzle document into shard 0 of the puzzle,
+   * returning how many had any. Shard 0 is $set rather than $inc'ed, so a
+   * rerun before the switch only catches up with the votes taken since, and
+   * the puzzle documents keep their tallies to switch back to. Refused once
+   * votes go to shards here, it would overwrite the votes shard 0 took.
+   */
+  public int foldIntoShardZero() {
+    if (isEnabled()) {
+      throw new IllegalStateException("Votes already go to shards, set votes.shards=0 to fold again");
+    }
+    return fold(mongoTemplate.getCollectionName(Anime.class))
+        + fold(mongoTemplate.getCollectionName(Manga.class));
+  }
+
+  private int fold(String collection) {
+    Query query = new Query();
+    query.fields().include("realVotes", "aiVotes", "scores");
+    List<Pair<Query, Update>> batch = new ArrayList<>(FOLD_BATCH);
+    int folded = 0;
+    try (Stream<Document> documents = mongoTemplate.stream(query, Document.class, collection)) {
+      Iterator<Document> it = documents.iterator();
+      while (it.hasNext()) {
+        Document document = it.next();
+        Document id = document.get("_id", Document.class);
+        Update update = shardZero(id.getString("mode"), document);
+        if (update == null) {
+          continue;
+        }
+        batch.add(Pair.of(shard(new AnimeId(id.getString("date"), id.getString("mode")), 0), update));
+        folded++;
+        if (batch.size() == FOLD_BATCH) {
+          mongoTemplate.bulkOps(BulkMode.UNORDERED, VoteShard.class).upsert(batch).execute();
+          batch.clear();
+        }
+      }
+    }
+    if (!batch.isEmpty()) {
+      mongoTemplate.bulkOps(BulkMode.UNORDERED, VoteShard.class).upsert(batch).execute();
+    }
+    return folded;
+  }
+
+  // Null when the puzzle has no votes, its shard 0 is then left to the first vote
+  private static Update shardZero(String mode, Document document) {
+    Update update = new Update();
+    boolean any = false;
+    if (isRating(mode)) {
+      List<?> scores = document.get("scores", List.class);
+      for (int i = 0; scores != null && i < scores.size(); i++) {
+        int score = scores.get(i) != null ? ((Number) scores.get(i)).intValue() : 0;
+        update.set("scores." + i, score);
+        any |= score != 0;
+      }
+    } else {
+      int realVotes = document.get("realVotes") != null ? document.get("realVotes", Number.class).intValue() : 0;
+      int aiVotes = document.get("aiVotes") != null ? document.get("aiVotes", Number.class).intValue() : 0;
+      update.set("realVotes", realVotes).set("aiVotes", aiVotes);
+      any = realVotes != 0 || aiVotes != 0;
+    }
+    return any ? update : null;
+  }
+
+  private Rollup store(AnimeId id, Document answer, long[] sums) {
+    if (answer == null) {
+      rollups.remove(id);
+      return null;
+    }
+    Rollup rollup = new Rollup(answer, sums);
+    rollups.put(id, rollup);
+    return rollup;
+  }
+
+  private static Query answerQuery(AnimeId id, String... fields) {
+    Query query = new Query(Criteria.where("_id").is(id));
+    query.fields().include(fields);
+    return query;
+  }
+
+  private static Query shard(AnimeId id, int shard) {
+    return new Query(Criteria.where("_id").is(new VoteShardId(id.getDate(), id.getMode(), shard)));
+  }
+
+  private static Aggregation aggregation(String mode, Collection<String> dates) {
+    GroupOperation group = Aggregation.group("_id.date")
+        .sum("realVotes").as("realVotes")
+        .sum("aiVotes").as("aiVotes");
+    for (int i = 0; i < VoteAggregator.RATING_OPTIONS; i++) {
+      group = group.sum("scores." + i).as("score" + i);
+    }
+    return Aggregation.newAggregation(Aggregation.match(Criteria.where("_id.mode").is(mode).and("_id.date").in(dates)),
+        group);
+  }
+
+  private String collection() {
+    return mongoTemplate.getCollectionName(VoteShard.class);
+  }
+
+  private static long[] slots(String mode, Document group) {
+    long[] sums = new long[slots(mode)];
+    for (int i = 0; i < sums.length; i++) {
+      String field = isRating(mode) ? "score" + i : i == 1 ? "aiVotes" : "realVotes";
+      sums[i] = group.get(field, Number.class).longValue();
+    }
+    return sums;
+  }
+
+  private static int slots(String mode) {
+    return isRating(mode) ? VoteAggregator.RATING_OPTIONS : 2;
+  }
+
+  private static boolean isRating(String mode) {
+    return "rating".equals(mode);
+  }
+
+  /**
+   * A puzzle's answer fields and its tallies as last aggregated, plus the
+   * votes counted through it since. A vote landing in a shard after the
+   * aggregation shows up with the next rollup, so the tallies lag by at most
+   * votes.shards.rollup-ttl.
+   */
+  public class Rollup {
+    private final Document answer;
+    private final long[] sums;
+    private final LongAdder[] counted;
+    private final long loadedAt = System.nanoTime();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private Rollup(Document answer, long[] sums) {
+      this.answer = answer;
+      this.sums = sums;
+      this.counted = new LongAdder[sums.length];
+      for (int i = 0; i < counted.length; i++) {
+        counted[i] = new LongAdder();
+      }
+    }
+
+    // Once the rollup is stale only the first caller reloads it
+    private boolean claimRefresh(Duration ttl) {
+      return System.nanoTime() - loadedAt > ttl.toNanos() && refreshing.compareAndSet(false, true);
+    }
+
+    // A vote this instance upserted into a shard
+    public void count(String field) {
+      counted[field.startsWith("scores.") ? Integer.parseInt(field.substring(7)) : "aiVotes".equals(field) ? 1 : 0]
+          .increment();
+    }
+
+    // A fresh copy of the answer, without tallies
+    public <T> T answer(Class<T> type) {
+      return mongoTemplate.getConverter().read(type, answer);
+    }
+
+    public long[] sums() {
+      long[] current = sums.clone();
+      for (int i = 0; i < current.length; i++) {
+        current[i] += counted[i].sum();
+      }
+      return current;
+    }
+  }
+}
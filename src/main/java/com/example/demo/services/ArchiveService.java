@@ -0,0 +1,94 @@
+package com.example.demo.services;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.AnimeHiddenDTO;
+import com.example.demo.dto.ArchiveEntryDTO;
+import com.example.demo.dto.ArchivePageDTO;
+import com.example.demo.dto.RatingDTO;
+import com.example.demo.dto.RatingHiddenDTO;
+import com.example.demo.dto.TitleHiddenDTO;
+import com.example.demo.dto.VotesDTO;
+import com.example.demo.mappers.PuzzleMapper;
+import com.example.demo.models.Anime;
+import com.example.demo.models.Manga;
+import com.example.demo.repositories.AnimeRepository;
+import com.example.demo.repositories.MangaRepository;
+
+/**
+ * Pages of past puzzles with their stats, newest first, from one range query
+ * per page. Stored stats are served as is, without live MyAnimeList
+ * enrichment.
+ */
+@Service
+public class ArchiveService {
+  public static final int DEFAULT_LIMIT = 30;
+  public static final int MAX_LIMIT = 100;
+
+  @Autowired
+  private AnimeRepository animeRepository;
+
+  @Autowired
+  private MangaRepository mangaRepository;
+
+  @Autowired
+  private VoteAggregator voteAggregator;
+
+  public ArchivePageDTO<ArchiveEntryDTO<AnimeHiddenDTO, VotesDTO>> getAnimeArchive(String from, String to,
+      String cursor, int limit) {
+    List<Anime> fetched = animeRepository.findArchive("anime", from, before(to, cursor), limit + 1);
+    return page(fetched, limit, anime -> anime.getId().getDate(), this::toAnimeEntry);
+  }
+
+  public ArchivePageDTO<ArchiveEntryDTO<RatingHiddenDTO, RatingDTO>> getRatingArchive(String from, String to,
+      String cursor, int limit) {
+    List<Anime> fetched = animeRepository.findArchive("rating", from, before(to, cursor), limit + 1);
+    return page(fetched, limit, anime -> anime.getId().getDate(), this::toRatingEntry);
+  }
+
+  public ArchivePageDTO<ArchiveEntryDTO<TitleHiddenDTO, VotesDTO>> getTitleArchive(String from, String to,
+      String cursor, int limit) {
+    List<Manga> fetched = mangaRepository.findArchive(from, before(to, cursor), limit + 1);
+    return page(fetched, limit, manga -> manga.getId().getDate(), this::toTitleEntry);
+  }
+
+  ArchiveEntryDTO<AnimeHiddenDTO, VotesDTO> toAnimeEntry(Anime anime) {
+    voteAggregator.applyPending(anime);
+    return new ArchiveEntryDTO<>(anime.getId().getDate(), PuzzleMapper.toAnimeHidden(anime),
+        PuzzleMapper.toVotes(anime));
+  }
+
+  ArchiveEntryDTO<RatingHiddenDTO, RatingDTO> toRatingEntry(Anime anime) {
+    voteAggregator.applyPending(anime);
+    return new ArchiveEntryDTO<>(anime.getId().getDate(), PuzzleMapper.toRatingHidden(anime),
+        PuzzleMapper.toRating(anime));
+  }
+
+  ArchiveEntryDTO<TitleHiddenDTO, VotesDTO> toTitleEntry(Manga manga) {
+    voteAggregator.applyPending(manga);
+    return new ArchiveEntryDTO<>(manga.getId().getDate(), PuzzleMapper.toTitleHidden(manga),
+        PuzzleMapper.toVotes(manga));
+  }
+
+  // Exclusive upper bound: the cursor, else the day after to, never past today (UTC)
+  static String before(String to, String cursor) {
+    String tomorrow = LocalDate.now(ZoneOffset.UTC).plusDays(1).toString();
+    String before = cursor != null ? cursor : to != null ? LocalDate.parse(to).plusDays(1).toString() : tomorrow;
+    return before.compareTo(tomorrow) < 0 ? before : tomorrow;
+  }
+
+  // One extra document is fetched to know whether an older page exists
+  static <T, E> ArchivePageDTO<E> page(List<T> fetched, int limit, Function<T, String> date,
+      Function<T, E> toEntry) {
+    boolean more = fetched.size() > limit;
+    List<T> entries = more ? fetched.subList(0, limit) : fetched;
+    String nextCursor = more ? date.apply(entries.get(entries.size() - 1)) : null;
+    return new ArchivePageDTO<>(entries.stream().map(toEntry).toList(), nextCursor);
+  }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.demo.dto.VerifyCaptchaResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolationException;
+import reactor.core.publisher.Mono;
+
+@Service
+public class CaptchaService {
+  @Autowired
+  @Qualifier("recaptchaClient")
+  private WebClient webClient;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${RECAPTCHA_SECRET:}")
+  private String CAPTCHA_SECRET;
+
+  @Value("${recaptcha.verify-url:https://www.google.com/recaptcha/api/siteverify}")
+  private String verifyUrl;
+
+  @Value("${recaptcha.timeout:PT2S}")
+  private Duration timeout;
+
+  @Value("${recaptcha.verified-ttl:PT2M}")
+  private Duration verifiedTtl;
+
+  @Value("${recaptcha.verified-max-size:10000}")
+  private int verifiedMaxSize;
+
+  // SHA-256 of verified tokens whose vote failed to record -> expiry, so the retry isn't re-verified
+  private final Map<String, Long> verified = new ConcurrentHashMap<>();
+
+  public Mono<Boolean> verify(String captcha) {
+    if (captcha == null) {
+      return Mono.just(false);
+    }
+    String hash = hash(captcha);
+    Long expiresAt = verified.get(hash);
+    // Taken on use, so a token is not accepted again from the cache
+    if (expiresAt != null && expiresAt > System.currentTimeMillis() && verified.remove(hash, expiresAt)) {
+      meterRegistry.counter("captcha.verify.cached").increment();
+      return Mono.just(true);
+    }
+
+    Timer.Sample sample = Timer.start(meterRegistry);
+    return webClient.post()
+        .uri(verifyUrl)
+        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+        .body(BodyInserters.fromFormData("secret", CAPTCHA_SECRET)
+            .with("response", captcha))
+        .retrieve()
+        .bodyToMono(VerifyCaptchaResponse.class)
+        .map(data -> Boolean.TRUE.equals(data.getSuccess()))
+        .defaultIfEmpty(false)
+        .timeout(timeout)
+        .doOnNext(success -> sample.stop(timer(success ? "success" : "failure")))
+        .onErrorResume(e -> {
+          sample.stop(timer(e instanceof TimeoutException ? "timeout" : "error"));
+          return Mono.just(false);
+        });
+  }
+
+  // For reactive controllers, where the @Captcha validator cannot block
+  public Mono<Void> require(String captcha) {
+    return verify(captcha).flatMap(valid -> valid ? Mono.<Void>empty()
+        : Mono.error(new ConstraintViolationException("Captcha not valid", Set.of())));
+  }
+
+  // Only for a token that passed verification and whose vote then failed, Google would reject it as used
+  public void rememberForRetry(String captcha) {
+    if (captcha != null) {
+      remember(hash(captcha));
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${recaptcha.verified-ttl:PT2M}")
+  void evictExpired() {
+    long now = System.currentTimeMillis();
+    verified.values().removeIf(expiresAt -> expiresAt <= now);
+  }
+
+  private void remember(String hash) {
+    if (verified.size() >= verifiedMaxSize) {
+      evictExpired();
+    }
+    if (verified.size() < verifiedMaxSize) {
+      verified.put(hash, System.currentTimeMillis() + verifiedTtl.toMillis());
+    }
+  }
+
+  private Timer timer(String outcome) {
+    return Timer.builder("captcha.verify").tag("outcome", outcome).register(meterRegistry);
+  }
+
+  private static String hash(String token) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
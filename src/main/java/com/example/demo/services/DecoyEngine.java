@@ -0,0 +1,131 @@
+package com.example.demo.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import com.example.demo.models.Anime.AnimeId;
+
+/**
+ * Made-up values for puzzles: the rating options around a real score and the
+ * genre subsets of fake entries. Each puzzle draws from its own
+ * SplittableRandom seeded from the run seed and the puzzle id, so it gets the
+ * same decoys however enrichment is interleaved and no generator is shared
+ * between threads. Rejection sampling gets a fixed number of draws per option,
+ * after that the option is drawn uniformly from the gaps still far enough from
+ * the others, so the running time is bounded even next to the clamp bounds.
+ */
+final class DecoyEngine {
+  // Options are in hundredths, strictly between 0.00 and 9.35
+  private static final int MIN = 1;
+  private static final int MAX = 934;
+  private static final int MIN_DISTANCE = 50;
+  private static final double MIN_SCORE = 0.0;
+  private static final double MAX_SCORE = 9.35;
+  private static final double SPREAD = 1.5;
+
+  static final int MAX_REJECTIONS = 16;
+
+  private DecoyEngine() {
+  }
+
+  // The same puzzle of the same run always gets the same stream
+  static SplittableRandom forPuzzle(long seed, AnimeId id) {
+    return new SplittableRandom(new SplittableRandom(seed ^ id.hashCode()).nextLong());
+  }
+
+  // The score and normally distributed decoys around it, at least 0.5 apart, sorted
+  static List<Double> ratingOptions(double score, int amount, SplittableRandom random) {
+    double mean = score + (random.nextBoolean() ? 1 : -1);
+    if (mean > MAX_SCORE) {
+      mean = MAX_SCORE - 1;
+    } else if (mean < MIN_SCORE) {
+      mean = MIN_SCORE + 1;
+    }
+
+    List<Double> options = new ArrayList<>(amount);
+    int[] taken = new int[amount];
+    options.add(score);
+    taken[0] = (int) Math.round(score * 100);
+    for (int count = 1; count < amount; count++) {
+      int option = -1;
+      for (int attempt = 0; attempt < MAX_REJECTIONS && option < 0; attempt++) {
+        int candidate = (int) Math.round(random.nextGaussian(mean, SPREAD) * 100);
+        if (isFree(candidate, taken, count)) {
+          option = candidate;
+        }
+      }
+      if (option < 0) {
+        option = uniformFree(taken, count, random);
+      }
+      taken[count] = option;
+      options.add(option / 100.0);
+    }
+    Collections.sort(options);
+    return options;
+  }
+
+  // Random non-empty subset, sorted alphabetically
+  static List<String> genres(List<String> genres, SplittableRandom random) {
+    if (genres.isEmpty()) {
+      return new ArrayList<>();
+    }
+    List<String> shuffled = new ArrayList<>(genres);
+    int size = random.nextInt(1, shuffled.size() + 1);
+    // Only the kept prefix is shuffled
+    for (int i = 0; i < size; i++) {
+      Collections.swap(shuffled, i, random.nextInt(i, shuffled.size()));
+    }
+    List<String> subset = new ArrayList<>(shuffled.subList(0, size));
+    Collections.sort(subset);
+    return subset;
+  }
+
+  private static boolean isFree(int candidate, int[] taken, int count) {
+    if (candidate < MIN || candidate > MAX) {
+      return false;
+    }
+    for (int i = 0; i < count; i++) {
+      if (Math.abs(candidate - taken[i]) < MIN_DISTANCE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Walks the gaps between the sorted options, so it takes the same time wherever they are
+  private static int uniformFree(int[] taken, int count, SplittableRandom random) {
+    int[] sorted = Arrays.copyOf(taken, count);
+    Arrays.sort(sorted);
+    int[] lows = new int[count + 1];
+    int[] highs = new int[count + 1];
+    int gaps = 0;
+    int free = 0;
+    int low = MIN;
+    for (int i = 0; i <= count; i++) {
+      int high = i < count ? Math.min(sorted[i] - MIN_DISTANCE, MAX) : MAX;
+      if (high >= low) {
+        lows[gaps] = low;
+        highs[gaps] = high;
+        free += high - low + 1;
+        gaps++;
+      }
+      if (i < count) {
+        low = Math.max(low, sorted[i] + MIN_DISTANCE);
+      }
+    }
+    if (free == 0) {
+      throw new IllegalArgumentException("No room for " + (count + 1) + " rating options 0.5 apart");
+    }
+
+    int pick = random.nextInt(free);
+    int gap = 0;
+    while (pick > highs[gap] - lows[gap]) {
+      pick -= highs[gap] - lows[gap] + 1;
+      gap++;
+    }
+    return lows[gap] + pick;
+  }
+}
@@ -0,0 +1,170 @@
+package com.example.demo.services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Decoy stats for made-up puzzles, bucketed by type. Only eligible entries
+ * are kept, a draw swaps a random entry with the last one and removes it in
+ * constant time, and a bucket is refilled in the background once it drops
+ * below the low-water mark, so draws only wait when a bucket is empty.
+ * Waiting draws fail once maxEmptyPages pages in a row had nothing eligible.
+ */
+public class DecoyPool<T> {
+  private static final Logger log = LoggerFactory.getLogger(DecoyPool.class);
+
+  private final Function<String, Mono<List<T>>> source;
+  private final Predicate<T> eligible;
+  private final int lowWater;
+  private final int maxEmptyPages;
+  private final Random random;
+  private final Map<String, Bucket<T>> buckets = new ConcurrentHashMap<>();
+
+  public DecoyPool(Function<String, Mono<List<T>>> source, Predicate<T> eligible, int lowWater, int maxEmptyPages,
+      Random random) {
+    this.source = source;
+    this.eligible = eligible;
+    this.lowWater = lowWater;
+    this.maxEmptyPages = maxEmptyPages;
+    this.random = random;
+  }
+
+  // Starts filling the buckets before the first draw
+  public void prime(Collection<String> types) {
+    types.forEach(type -> refillIfLow(type, bucket(type)));
+  }
+
+  public Mono<T> draw(String type) {
+    return Mono.create(sink -> {
+      Bucket<T> bucket = bucket(type);
+      T drawn;
+      synchronized (bucket) {
+        drawn = bucket.take(random);
+        if (drawn == null) {
+          bucket.waiters.add(sink);
+          sink.onCancel(() -> {
+            synchronized (bucket) {
+              bucket.waiters.remove(sink);
+            }
+          });
+        }
+      }
+      if (drawn != null) {
+        sink.success(drawn);
+      }
+      refillIfLow(type, bucket);
+    });
+  }
+
+  public int size(String type) {
+    Bucket<T> bucket = buckets.get(type);
+    if (bucket == null) {
+      return 0;
+    }
+    synchronized (bucket) {
+      return bucket.items.size();
+    }
+  }
+
+  private Bucket<T> bucket(String type) {
+    return buckets.computeIfAbsent(type, key -> new Bucket<>());
+  }
+
+  // At most one refill per bucket is in flight
+  private void refillIfLow(String type, Bucket<T> bucket) {
+    synchronized (bucket) {
+      if (bucket.refilling || (bucket.items.size() >= lowWater && bucket.waiters.isEmpty())) {
+        return;
+      }
+      bucket.refilling = true;
+    }
+    source.apply(type).defaultIfEmpty(List.of()).subscribe(page -> fill(type, bucket, page),
+        e -> fail(type, bucket, e));
+  }
+
+  private void fill(String type, Bucket<T> bucket, List<T> page) {
+    List<MonoSink<T>> served = new ArrayList<>();
+    List<T> drawn = new ArrayList<>();
+    int added = 0;
+    boolean waiting;
+    boolean starved;
+    synchronized (bucket) {
+      for (T item : page) {
+        if (eligible.test(item)) {
+          bucket.items.add(item);
+          added++;
+        }
+      }
+      while (!bucket.waiters.isEmpty() && !bucket.items.isEmpty()) {
+        served.add(bucket.waiters.poll());
+        drawn.add(bucket.take(random));
+      }
+      bucket.emptyPages = added > 0 ? 0 : bucket.emptyPages + 1;
+      waiting = !bucket.waiters.isEmpty();
+      starved = waiting && bucket.emptyPages >= maxEmptyPages;
+      if (starved) {
+        bucket.emptyPages = 0;
+      }
+      bucket.refilling = false;
+    }
+    for (int i = 0; i < served.size(); i++) {
+      served.get(i).success(drawn.get(i));
+    }
+
+    // Stop spending the Jikan budget on a type the source has nothing eligible for
+    if (starved) {
+      fail(type, bucket, new IllegalStateException("No eligible " + type + " decoys in " + maxEmptyPages
+          + " pages in a row"));
+      return;
+    }
+    // Keep going while draws are waiting, or while still low and the source is producing
+    if (waiting || added > 0) {
+      refillIfLow(type, bucket);
+    }
+  }
+
+  private void fail(String type, Bucket<T> bucket, Throwable e) {
+    List<MonoSink<T>> waiting;
+    synchronized (bucket) {
+      waiting = new ArrayList<>(bucket.waiters);
+      bucket.waiters.clear();
+      bucket.refilling = false;
+    }
+    log.warn("Could not refill {} decoys: {}", type, e.toString());
+    waiting.forEach(sink -> sink.error(e));
+  }
+
+  private static class Bucket<T> {
+    private final List<T> items = new ArrayList<>();
+    private final Queue<MonoSink<T>> waiters = new ArrayDeque<>();
+    private boolean refilling;
+    private int emptyPages;
+
+    // Swap with the last entry so removal does not shift the list
+    private T take(Random random) {
+      int size = items.size();
+      if (size == 0) {
+        return null;
+      }
+      int index = random.nextInt(size);
+      T item = items.get(index);
+      items.set(index, items.get(size - 1));
+      items.remove(size - 1);
+      return item;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package com.example.demo.services;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+
+/**
+ * Stops calling Jikan after consecutive failures (timeouts, connection errors,
+ * 429s and 5xx). While open, calls fail immediately so callers fall back to
+ * stored stats. After the open period a single probe call is let through, and
+ * its outcome closes or reopens the circuit.
+ */
+@Component
+public class JikanCircuitBreaker {
+  private static final Logger log = LoggerFactory.getLogger(JikanCircuitBreaker.class);
+
+  public enum State {
+    CLOSED, HALF_OPEN, OPEN
+  }
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${jikan.breaker.failure-threshold:5}")
+  private int failureThreshold;
+
+  @Value("${jikan.breaker.open-duration:PT30S}")
+  private Duration openDuration;
+
+  private Counter rejected;
+
+  // Guarded by this
+  private State state = State.CLOSED;
+  private int failures;
+  private long openedAt;
+  private boolean probing;
+
+  @PostConstruct
+  void init() {
+    // 0 closed, 1 half-open, 2 open
+    Gauge.builder("jikan.breaker.state", this, breaker -> breaker.getState().ordinal()).register(meterRegistry);
+    rejected = Counter.builder("jikan.breaker.rejected").register(meterRegistry);
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  // Fails with OpenException instead of subscribing to the call while the circuit is open
+  public <T> Mono<T> protect(Mono<T> call) {
+    return Mono.defer(() -> {
+      if (!tryAcquire()) {
+        rejected.increment();
+        return Mono.error(new OpenException());
+      }
+      return call
+          .doOnSuccess(value -> onSuccess())
+          .doOnError(e -> {
+            if (isFailure(e)) {
+              onFailure(e);
+            } else {
+              onSuccess();
+            }
+          })
+          .doOnCancel(this::onCancel);
+    });
+  }
+
+  // Only errors that say Jikan is unhealthy, a 404 for a removed entry does not count
+  static boolean isFailure(Throwable e) {
+    if (e instanceof WebClientResponseException response) {
+      return response.getStatusCode().value() == 429 || response.getStatusCode().is5xxServerError();
+    }
+    return e instanceof TimeoutException || e instanceof WebClientRequestException;
+  }
+
+  private synchronized boolean tryAcquire() {
+    if (state == State.OPEN && System.nanoTime() - openedAt >= openDuration.toNanos()) {
+      state = State.HALF_OPEN;
+    }
+    if (state == State.HALF_OPEN) {
+      if (probing) {
+        return false;
+      }
+      probing = true;
+      return true;
+    }
+    return state == State.CLOSED;
+  }
+
+  private synchronized void onSuccess() {
+    if (state != State.CLOSED) {
+      log.info("Jikan circuit closed");
+    }
+    state = State.CLOSED;
+    failures = 0;
+    probing = false;
+  }
+
+  private synchronized void onFailure(Throwable e) {
+    failures++;
+    if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+      log.warn("Jikan circuit opened for {} after {} consecutive failures, last: {}", openDuration, failures,
+          e.toString());
+      state = State.OPEN;
+      openedAt = System.nanoTime();
+    }
+    probing = false;
+  }
+
+  // A cancelled probe proves nothing, let the next call probe instead
+  private synchronized void onCancel() {
+    probing = false;
+  }
+
+  public static class OpenException extends RuntimeException {
+    public OpenException() {
+      super("Jikan circuit is open", null, false, false);
+    }
+  }
+}
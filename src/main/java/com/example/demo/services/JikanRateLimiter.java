@@ -0,0 +1,182 @@
+package com.example.demo.services;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Process-wide scheduler for Jikan requests. Enforces the per-second and
+ * per-minute budgets with two token buckets, always serving waiting live
+ * (player) requests before batch (generation) requests, and pauses all
+ * traffic after a 429 for the Retry-After period.
+ */
+@Component
+public class JikanRateLimiter {
+  public enum Lane {
+    LIVE, BATCH
+  }
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${jikan.rate.per-second:3}")
+  private int perSecond;
+
+  @Value("${jikan.rate.per-minute:60}")
+  private int perMinute;
+
+  private final Map<Lane, Deque<Waiter>> queues = new EnumMap<>(Lane.class);
+  private final Map<Lane, Timer> waitTimers = new EnumMap<>(Lane.class);
+  private ScheduledExecutorService executor;
+  private Counter throttled;
+
+  // Guarded by this
+  private double secondTokens;
+  private double minuteTokens;
+  private long lastRefill;
+  private long pausedUntil;
+  private boolean wakeupScheduled;
+
+  @PostConstruct
+  void init() {
+    secondTokens = perSecond;
+    minuteTokens = perMinute;
+    lastRefill = System.nanoTime();
+    pausedUntil = lastRefill;
+    executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "jikan-rate-limiter");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    for (Lane lane : Lane.values()) {
+      Deque<Waiter> queue = new ArrayDeque<>();
+      queues.put(lane, queue);
+      String tag = lane.name().toLowerCase();
+      Gauge.builder("jikan.queue.depth", this, limiter -> limiter.depth(lane)).tag("lane", tag)
+          .register(meterRegistry);
+      waitTimers.put(lane, Timer.builder("jikan.queue.wait").tag("lane", tag).register(meterRegistry));
+    }
+    throttled = Counter.builder("jikan.throttled").register(meterRegistry);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  // Completes once a request may be sent on this lane
+  public Mono<Void> acquire(Lane lane) {
+    return Mono.create(sink -> {
+      Waiter waiter = new Waiter(sink, lane, System.nanoTime());
+      synchronized (this) {
+        queues.get(lane).add(waiter);
+      }
+      sink.onCancel(() -> {
+        synchronized (this) {
+          queues.get(lane).remove(waiter);
+        }
+      });
+      dispatch();
+    });
+  }
+
+  // Called on a 429, holds back every lane until Retry-After has passed
+  public void penalize(Duration retryAfter) {
+    throttled.increment();
+    synchronized (this) {
+      pausedUntil = Math.max(pausedUntil, System.nanoTime() + retryAfter.toNanos());
+      // Drop burst credit so traffic resumes at the steady rate
+      secondTokens = 0;
+    }
+    dispatch();
+  }
+
+  private void dispatch() {
+    List<Waiter> granted = new ArrayList<>();
+    long now = System.nanoTime();
+    synchronized (this) {
+      refill(now);
+      while (now >= pausedUntil && secondTokens >= 1 && minuteTokens >= 1) {
+        Waiter next = poll();
+        if (next == null) {
+          break;
+        }
+        secondTokens--;
+        minuteTokens--;
+        granted.add(next);
+      }
+
+      if (!wakeupScheduled && depth(Lane.LIVE) + depth(Lane.BATCH) > 0) {
+        wakeupScheduled = true;
+        executor.schedule(() -> {
+          synchronized (this) {
+            wakeupScheduled = false;
+          }
+          dispatch();
+        }, nanosUntilNextToken(now), TimeUnit.NANOSECONDS);
+      }
+    }
+
+    for (Waiter waiter : granted) {
+      waitTimers.get(waiter.lane).record(now - waiter.enqueuedAt, TimeUnit.NANOSECONDS);
+      waiter.sink.success();
+    }
+  }
+
+  // Live requests always go first
+  private Waiter poll() {
+    Waiter next = queues.get(Lane.LIVE).poll();
+    return next != null ? next : queues.get(Lane.BATCH).poll();
+  }
+
+  private void refill(long now) {
+    double seconds = (now - lastRefill) / 1e9;
+    secondTokens = Math.min(perSecond, secondTokens + seconds * perSecond);
+    minuteTokens = Math.min(perMinute, minuteTokens + seconds * perMinute / 60.0);
+    lastRefill = now;
+  }
+
+  private long nanosUntilNextToken(long now) {
+    double secondWait = secondTokens >= 1 ? 0 : (1 - secondTokens) / perSecond;
+    double minuteWait = minuteTokens >= 1 ? 0 : (1 - minuteTokens) * 60.0 / perMinute;
+    long tokenWait = (long) (Math.max(secondWait, minuteWait) * 1e9);
+    return Math.max(Math.max(tokenWait, pausedUntil - now), TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  private synchronized int depth(Lane lane) {
+    return queues.get(lane).size();
+  }
+
+  private static class Waiter {
+    private final MonoSink<Void> sink;
+    private final Lane lane;
+    private final long enqueuedAt;
+
+    private Waiter(MonoSink<Void> sink, Lane lane, long enqueuedAt) {
+      this.sink = sink;
+      this.lane = lane;
+      this.enqueuedAt = enqueuedAt;
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package com.example.demo.services;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.example.demo.cache.SingleFlight;
+import com.example.demo.cache.TtlCache;
+import com.example.demo.catalog.JikanCatalog;
+import com.example.demo.dto.AnimeAPIResponse;
+import com.example.demo.dto.AnimeAPIResponse.AnimeAPIData;
+import com.example.demo.dto.AnimeListAPIResponse;
+import com.example.demo.dto.MangaAPIResponse;
+import com.example.demo.dto.MangaAPIResponse.MangaAPIData;
+import com.example.demo.dto.MangaListAPIResponse;
+import com.example.demo.services.JikanRateLimiter.Lane;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+@Service
+public class JikanService {
+  private static final Logger log = LoggerFactory.getLogger(JikanService.class);
+
+  @Autowired
+  private WebClient webClient;
+
+  @Autowired
+  private JikanRateLimiter rateLimiter;
+
+  @Autowired
+  private JikanCircuitBreaker breaker;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private JikanCatalog catalog;
+
+  @Value("${jikan.base-url:https://api.jikan.moe/v4}")
+  private String baseUrl;
+
+  @Value("${jikan.live-timeout:PT2S}")
+  private Duration liveTimeout;
+
+  @Value("${jikan.request-timeout:PT10S}")
+  private Duration requestTimeout;
+
+  @Value("${jikan.batch-retries:5}")
+  private int batchRetries;
+
+  @Value("${jikan.cache.ttl:PT10M}")
+  private Duration cacheTtl;
+
+  @Value("${jikan.cache.max-size:5000}")
+  private int cacheMaxSize;
+
+  @Value("${catalog.live-max-age:PT6H}")
+  private Duration catalogMaxAge;
+
+  private TtlCache<String, AnimeAPIData> animeCache;
+  private TtlCache<String, MangaAPIData> mangaCache;
+
+  // Cache misses and stale refreshes of the same malId share one live fetch
+  private SingleFlight<String, AnimeAPIData> animeFetches;
+  private SingleFlight<String, MangaAPIData> mangaFetches;
+
+  @PostConstruct
+  void init() {
+    animeCache = new TtlCache<>(cacheTtl, cacheMaxSize);
+    mangaCache = new TtlCache<>(cacheTtl, cacheMaxSize);
+    animeFetches = new SingleFlight<>("jikan.anime", meterRegistry);
+    mangaFetches = new SingleFlight<>("jikan.manga", meterRegistry);
+    registerMetrics("anime", animeCache);
+    registerMetrics("manga", mangaCache);
+  }
+
+  private void registerMetrics(String name, TtlCache<?, ?> cache) {
+    FunctionCounter.builder("jikan.cache.requests", cache, TtlCache::getHits).tags("cache", name, "result", "hit")
+        .register(meterRegistry);
+    FunctionCounter.builder("jikan.cache.requests", cache, TtlCache::getStaleHits).tags("cache", name, "result", "stale")
+        .register(meterRegistry);
+    FunctionCounter.builder("jikan.cache.requests", cache, TtlCache::getMisses).tags("cache", name, "result", "miss")
+        .register(meterRegistry);
+    FunctionCounter.builder("jikan.cache.refreshes", cache, TtlCache::getRefreshes).tags("cache", name)
+        .register(meterRegistry);
+    FunctionCounter.builder("jikan.cache.refresh.failures", cache, TtlCache::getRefreshFailures).tags("cache", name)
+        .register(meterRegistry);
+    Gauge.builder("jikan.cache.size", cache, TtlCache::size).tags("cache", name).register(meterRegistry);
+  }
+
+  // Live stats, stale entries are served while refreshed in the background
+  public Optional<AnimeAPIData> getAnime(String malId) {
+    return getAnimeAsync(malId).blockOptional();
+  }
+
+  public Optional<MangaAPIData> getManga(String malId) {
+    return getMangaAsync(malId).blockOptional();
+  }
+
+  // From the local catalog while it is recent enough, otherwise live with the catalog as the fallback.
+  // Empty if neither has it and MyAnimeList did not answer within the live timeout
+  public Mono<AnimeAPIData> getAnimeAsync(String malId) {
+    Optional<AnimeAPIData> local = catalog.getAnime(malId, catalogMaxAge);
+    if (local.isPresent()) {
+      return Mono.just(local.get());
+    }
+    return animeCache.get(malId, id -> animeFetches.callAsync(id, () -> fetchAnime(id, Lane.LIVE))).timeout(liveTimeout)
+        .onErrorResume(e -> liveFailed("anime", malId, e))
+        .switchIfEmpty(Mono.fromSupplier(() -> catalog.getAnime(malId, null).orElse(null)));
+  }
+
+  public Mono<MangaAPIData> getMangaAsync(String malId) {
+    Optional<MangaAPIData> local = catalog.getManga(malId, catalogMaxAge);
+    if (local.isPresent()) {
+      return Mono.just(local.get());
+    }
+    return mangaCache.get(malId, id -> mangaFetches.callAsync(id, () -> fetchManga(id, Lane.LIVE))).timeout(liveTimeout)
+        .onErrorResume(e -> liveFailed("manga", malId, e))
+        .switchIfEmpty(Mono.fromSupplier(() -> catalog.getManga(malId, null).orElse(null)));
+  }
+
+  // Catalog entry of any age, fetched on the given lane only when missing
+  public Mono<AnimeAPIData> resolveAnime(String malId, Lane lane) {
+    return Mono.defer(() -> Mono.justOrEmpty(catalog.getAnime(malId, null))).switchIfEmpty(fetchAnime(malId, lane));
+  }
+
+  public Mono<MangaAPIData> resolveManga(String malId, Lane lane) {
+    return Mono.defer(() -> Mono.justOrEmpty(catalog.getManga(malId, null))).switchIfEmpty(fetchManga(malId, lane));
+  }
+
+  // Uncached fetches, scheduled on the given lane and recorded in the catalog
+  public Mono<AnimeAPIData> fetchAnime(String malId, Lane lane) {
+    return request(lane, AnimeAPIResponse.class, "/anime/{id}", malId)
+        .mapNotNull(AnimeAPIResponse::getData).doOnNext(data -> catalog.putAnime(List.of(data)));
+  }
+
+  public Mono<MangaAPIData> fetchManga(String malId, Lane lane) {
+    return request(lane, MangaAPIResponse.class, "/manga/{id}", malId)
+        .mapNotNull(MangaAPIResponse::getData).doOnNext(data -> catalog.putManga(List.of(data)));
+  }
+
+  public Mono<AnimeAPIData> fetchRandomAnime(Lane lane) {
+    return request(lane, AnimeAPIResponse.class, "/random/anime")
+        .mapNotNull(AnimeAPIResponse::getData).doOnNext(data -> catalog.putAnime(List.of(data)));
+  }
+
+  // Only include where score exists
+  public Mono<List<AnimeAPIData>> fetchAnimePage(String type, int page, Lane lane) {
+    return request(lane, AnimeListAPIResponse.class,
+        "/anime?min_score=0.1&page={page}&order_by=title&type={type}", page, type)
+        .mapNotNull(AnimeListAPIResponse::getData).doOnNext(catalog::putAnime);
+  }
+
+  public Mono<List<MangaAPIData>> fetchMangaPage(String type, int page, Lane lane) {
+    return request(lane, MangaListAPIResponse.class,
+        "/manga?min_score=0.1&page={page}&order_by=title&type={type}", page, type)
+        .mapNotNull(MangaListAPIResponse::getData).doOnNext(catalog::putManga);
+  }
+
+  // Every Jikan call goes through the circuit breaker and waits for the shared rate limiter, the HTTP
+  // call itself has a deadline. Batch calls retry 429s and an open circuit with backoff.
+  // URI templates keep the http.client.requests uri tag to one value per endpoint
+  private <T> Mono<T> request(Lane lane, Class<T> type, String path, Object... variables) {
+    Mono<T> call = breaker.protect(rateLimiter.acquire(lane)
+        .then(Mono.defer(() -> webClient.get().uri(baseUrl + path, variables).retrieve().bodyToMono(type))
+            .timeout(lane == Lane.LIVE ? liveTimeout : requestTimeout)))
+        .doOnError(WebClientResponseException.TooManyRequests.class,
+            e -> rateLimiter.penalize(retryAfter(e)));
+    if (lane == Lane.BATCH) {
+      call = call.retryWhen(Retry.backoff(batchRetries, Duration.ofSeconds(1))
+          .filter(e -> e instanceof WebClientResponseException.TooManyRequests
+              || e instanceof JikanCircuitBreaker.OpenException));
+    }
+    return call;
+  }
+
+  private static Duration retryAfter(WebClientResponseException e) {
+    String header = e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+    try {
+      return header != null ? Duration.ofSeconds(Long.parseLong(header.strip())) : Duration.ofSeconds(1);
+    } catch (NumberFormatException ex) {
+      return Duration.ofSeconds(1);
+    }
+  }
+
+  // Live stats are optional, the stored stats are used instead
+  private <T> Mono<T> liveFailed(String kind, String malId, Throwable e) {
+    log.debug("Live {} stats for {} unavailable: {}", kind, malId, e.toString());
+    return Mono.empty();
+  }
+}
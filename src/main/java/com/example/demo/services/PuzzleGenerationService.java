@@ -0,0 +1,483 @@
+package com.example.demo.services;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.catalog.JikanCatalog;
+import com.example.demo.dto.AnimeAPIResponse.AnimeAPIData;
+import com.example.demo.dto.GenerationProgressDTO;
+import com.example.demo.dto.MangaAPIResponse.MangaAPIData;
+import com.example.demo.models.Anime;
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.models.GenerationCheckpoint;
+import com.example.demo.models.Manga;
+import com.example.demo.repositories.GenerationCheckpointRepository;
+import com.example.demo.repositories.ReactiveAnimeRepository;
+import com.example.demo.repositories.ReactiveMangaRepository;
+import com.example.demo.services.JikanRateLimiter.Lane;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+/**
+ * Builds the daily puzzles from the generated summaries. The seed file is
+ * streamed through a bounded shuffle, enrichment runs concurrently on the batch
+ * Jikan lane and finished puzzles are written in bulk upserts that never touch
+ * stored ones. A checkpoint per mode keeps the shuffle seed and start date so
+ * a rerun skips stored puzzles and resumes where the last run stopped.
+ */
+@Service
+public class PuzzleGenerationService {
+  private static final Logger log = LoggerFactory.getLogger(PuzzleGenerationService.class);
+
+  private static final String BEGINNING_DAILY = "2024-08-24";
+
+  // Jikan list pages per type, used to fake stats for made-up puzzles
+  private static final Map<String, Integer> ANIME_PAGES = Map.of("tv", 193, "movie", 107, "ova", 137,
+      "special", 59, "ona", 84);
+  private static final Map<String, Integer> MANGA_PAGES = Map.of("manga", 816, "lightnovel", 40);
+
+  // Decoys taken from the catalog at once, the catalog is only used once it has a few pages of a type
+  private static final int DECOY_PAGE = 25;
+  private static final int MIN_CATALOG_DECOYS = 250;
+
+  public enum State {
+    IDLE, RUNNING, COMPLETED, FAILED, CANCELLED
+  }
+
+  @Autowired
+  private ReactiveAnimeRepository animeRepository;
+
+  @Autowired
+  private ReactiveMangaRepository mangaRepository;
+
+  @Autowired
+  private GenerationCheckpointRepository checkpointRepository;
+
+  @Autowired
+  private JikanService jikanService;
+
+  @Autowired
+  private JikanCatalog catalog;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  // Puzzles enriched at once, the rate limiter still caps the Jikan request rate
+  @Value("${generation.concurrency:4}")
+  private int concurrency;
+
+  @Value("${generation.log-every:10}")
+  private int logEvery;
+
+  @Value("${generation.anime-seed:classpath:summaries.json}")
+  private Resource animeSeed;
+
+  @Value("${generation.rating-seed:classpath:ratingSummaries.json}")
+  private Resource ratingSeed;
+
+  @Value("${generation.title-seed:classpath:titles.json}")
+  private Resource titleSeed;
+
+  // Summaries held at once to shuffle the seed
+  @Value("${generation.shuffle-buffer:10000}")
+  private int shuffleBuffer;
+
+  // Puzzles per stored id lookup and per bulk upsert
+  @Value("${generation.batch-size:500}")
+  private int batchSize;
+
+  @Value("${generation.flush-interval:PT5S}")
+  private Duration flushInterval;
+
+  // Decoys left in a type before it is refilled in the background
+  @Value("${generation.decoy-low-water:10}")
+  private int decoyLowWater;
+
+  // Pages in a row without an eligible decoy before waiting draws fail
+  @Value("${generation.decoy-max-empty-pages:5}")
+  private int decoyMaxEmptyPages;
+
+  private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+  private final Random random = new Random();
+  private DecoyPool<AnimeAPIData> animeDecoys;
+  private DecoyPool<MangaAPIData> mangaDecoys;
+
+  @PostConstruct
+  void init() {
+    // Decoys need a score to fake the stats with
+    animeDecoys = new DecoyPool<>(this::animeDecoyPage, data -> data.getScore() != null, decoyLowWater,
+        decoyMaxEmptyPages, random);
+    mangaDecoys = new DecoyPool<>(this::mangaDecoyPage, data -> data.getScore() != null, decoyLowWater,
+        decoyMaxEmptyPages, random);
+  }
+
+  public synchronized GenerationProgressDTO start(String mode) {
+    Job current = jobs.get(mode);
+    if (current != null && current.state == State.RUNNING) {
+      return current.toProgress();
+    }
+    Job job = new Job(mode);
+    job.state = State.RUNNING;
+    jobs.put(mode, job);
+    job.disposable = run(job).subscribe(null, job::fail, job::complete);
+    return job.toProgress();
+  }
+
+  // Stored puzzles and the checkpoint are kept, the next start resumes
+  public synchronized GenerationProgressDTO cancel(String mode) {
+    Job job = jobs.get(mode);
+    if (job == null) {
+      return progress(mode);
+    }
+    if (job.state == State.RUNNING) {
+      job.disposable.dispose();
+      job.finish(State.CANCELLED);
+    }
+    return job.toProgress();
+  }
+
+  public GenerationProgressDTO progress(String mode) {
+    Job job = jobs.get(mode);
+    return job != null ? job.toProgress() : new Job(mode).toProgress();
+  }
+
+  private Mono<Void> run(Job job) {
+    switch (job.mode) {
+      case "anime":
+        animeDecoys.prime(ANIME_PAGES.keySet());
+        return generate(job, animeSeed, Anime.class, Anime::setId, this::storedAnime, this::enrichAnime,
+            animeRepository::upsertAll);
+      case "rating":
+        return generate(job, ratingSeed, Anime.class, Anime::setId, this::storedAnime, this::enrichRating,
+            animeRepository::upsertAll);
+      case "title":
+        mangaDecoys.prime(MANGA_PAGES.keySet());
+        return generate(job, titleSeed, Manga.class, Manga::setId, this::storedManga, this::enrichTitle,
+            mangaRepository::upsertAll);
+      default:
+        return Mono.error(new IllegalArgumentException("Unknown mode " + job.mode));
+    }
+  }
+
+  // The seed is streamed twice, once to count it and once to generate, so memory stays flat
+  private <T> Mono<Void> generate(Job job, Resource seed, Class<T> type, BiConsumer<T, AnimeId> setId,
+      Function<List<AnimeId>, Flux<AnimeId>> stored, BiFunction<T, SplittableRandom, Mono<T>> enrich,
+      Function<List<T>, Mono<Integer>> save) {
+    return count(seed).flatMap(total -> checkpoint(job.mode, total.intValue()).flatMap(checkpoint -> {
+      job.begin(total.intValue());
+      log.info("Generating {} {} puzzles from {}", total, job.mode, checkpoint.getStartDate());
+
+      // Same seed and start date as the interrupted run, so every puzzle keeps its date
+      LocalDate start = LocalDate.parse(checkpoint.getStartDate());
+      return shuffle(read(seed, type), shuffleBuffer, new Random(checkpoint.getSeed())).index()
+          .map(indexed -> {
+            AnimeId id = new AnimeId(start.plusDays(indexed.getT1()).toString(), job.mode);
+            setId.accept(indexed.getT2(), id);
+            return Tuples.of(id, indexed.getT2());
+          })
+          .buffer(batchSize)
+          .concatMap(batch -> stored.apply(batch.stream().map(Tuple2::getT1).toList()).collect(Collectors.toSet())
+              .flatMapMany(existing -> {
+                job.skipped.addAndGet(existing.size());
+                return Flux.fromIterable(batch).filter(pair -> !existing.contains(pair.getT1()));
+              }))
+          // Decoys are drawn from the puzzle's own stream, so they do not depend on the interleaving
+          .flatMap(pair -> enrich.apply(pair.getT2(), DecoyEngine.forPuzzle(checkpoint.getSeed(), pair.getT1()))
+              .onErrorResume(e -> {
+                // Left unstored, the next run retries it
+                log.warn("Could not generate a {} puzzle: {}", job.mode, e.toString());
+                job.failed.incrementAndGet();
+                return Mono.empty();
+              }), concurrency)
+          // Flushed on a timer too, enrichment is paced by the Jikan rate limit
+          .bufferTimeout(batchSize, flushInterval)
+          .concatMap(batch -> save.apply(batch).doOnNext(inserted -> job.completed(batch.size()))
+              .onErrorResume(e -> {
+                log.warn("Could not store {} {} puzzles: {}", batch.size(), job.mode, e.toString());
+                job.failed.addAndGet(batch.size());
+                return Mono.empty();
+              }))
+          .then(Mono.defer(() -> job.failed.get() > 0 ? Mono.empty() : markCompleted(checkpoint)));
+    }));
+  }
+
+  // Top-level values, either a JSON array or newline-delimited JSON
+  private Mono<Long> count(Resource seed) {
+    return Mono.fromCallable(() -> {
+      try (JsonParser parser = objectMapper.createParser(seed.getInputStream())) {
+        long count = 0;
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+          token = parser.nextToken();
+        }
+        while (token != null && token != JsonToken.END_ARRAY) {
+          parser.skipChildren();
+          count++;
+          token = parser.nextToken();
+        }
+        return count;
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not read " + seed.getFilename() + ": " + e.getMessage(), e);
+      }
+    }).subscribeOn(Schedulers.boundedElastic());
+  }
+
+  private <T> Flux<T> read(Resource seed, Class<T> type) {
+    return Flux.using(() -> objectMapper.readerFor(type).<T>readValues(seed.getInputStream()),
+        items -> Flux.fromIterable(() -> items), items -> {
+          try {
+            items.close();
+          } catch (IOException e) {
+            log.debug("Could not close {}", seed.getFilename(), e);
+          }
+        })
+        .onErrorMap(e -> new IllegalStateException("Could not read " + seed.getFilename() + ": " + e.getMessage(),
+            e))
+        .subscribeOn(Schedulers.boundedElastic());
+  }
+
+  // Bounded shuffle, every item takes a random slot of the buffer and releases the one it evicts
+  static <T> Flux<T> shuffle(Flux<T> items, int size, Random random) {
+    return Flux.defer(() -> {
+      List<T> buffer = new ArrayList<>();
+      return items.<T>handle((item, sink) -> {
+        if (buffer.size() < size) {
+          buffer.add(item);
+          return;
+        }
+        int slot = random.nextInt(size);
+        sink.next(buffer.get(slot));
+        buffer.set(slot, item);
+      }).concatWith(Flux.defer(() -> {
+        Collections.shuffle(buffer, random);
+        return Flux.fromIterable(buffer);
+      }));
+    });
+  }
+
+  private Mono<GenerationCheckpoint> checkpoint(String mode, int total) {
+    Mono<Long> count = "title".equals(mode) ? mangaRepository.countByIdMode(mode)
+        : animeRepository.countByIdMode(mode);
+    return checkpointRepository.findById(mode)
+        .filter(checkpoint -> checkpoint.getCompletedAt() == null)
+        // New batch, continue the daily dates after the stored puzzles
+        .switchIfEmpty(Mono.defer(() -> count.flatMap(stored -> checkpointRepository.save(
+            new GenerationCheckpoint(mode, random.nextLong(),
+                LocalDate.parse(BEGINNING_DAILY).plusDays(stored).toString(), total,
+                Instant.now().toString(), null)))));
+  }
+
+  private Mono<Void> markCompleted(GenerationCheckpoint checkpoint) {
+    checkpoint.setCompletedAt(Instant.now().toString());
+    return checkpointRepository.save(checkpoint).then();
+  }
+
+  private Flux<AnimeId> storedAnime(List<AnimeId> ids) {
+    return animeRepository.findAllById(ids).map(Anime::getId);
+  }
+
+  private Flux<AnimeId> storedManga(List<AnimeId> ids) {
+    return mangaRepository.findAllById(ids).map(Manga::getId);
+  }
+
+  // For anime mode
+  private Mono<Anime> enrichAnime(Anime anime, SplittableRandom random) {
+    anime.setAiVotes(0);
+    anime.setRealVotes(0);
+
+    // If fake anime, randomly pick genre list size and stats
+    if (anime.getGenres() != null) {
+      anime.setFake(true);
+      anime.setGenres(DecoyEngine.genres(anime.getGenres(), random));
+      String type = anime.getType() != null ? anime.getType().toLowerCase() : "tv";
+      return animeDecoys.draw(ANIME_PAGES.containsKey(type) ? type : "tv").map(test -> {
+        anime.setMalId(test.getMal_id());
+        anime.setScore(test.getScore());
+        anime.setMembers(test.getMembers());
+        anime.setEpisodes(test.getEpisodes());
+        anime.setYear(AnimeService.getDateOrParseFromAired(test));
+        return anime;
+      });
+    }
+
+    // Real anime, get and store stats
+    return jikanService.resolveAnime(anime.getMalId(), Lane.BATCH).map(data -> {
+      setAnimeStats(anime, data);
+      anime.setFake(false);
+      return anime;
+    });
+  }
+
+  // For rating mode
+  private Mono<Anime> enrichRating(Anime anime, SplittableRandom random) {
+    anime.setScores(new ArrayList<>(Collections.nCopies(VoteAggregator.RATING_OPTIONS, 0)));
+    return jikanService.resolveAnime(anime.getMalId(), Lane.BATCH).map(data -> {
+      setAnimeStats(anime, data);
+      // Get normally distributed decoys around the score with min distance 0.5 from all
+      anime.setOptions(DecoyEngine.ratingOptions(data.getScore(), VoteAggregator.RATING_OPTIONS, random));
+      return anime;
+    });
+  }
+
+  // For title mode
+  private Mono<Manga> enrichTitle(Manga manga, SplittableRandom random) {
+    manga.setAiVotes(0);
+    manga.setRealVotes(0);
+
+    // If fake title, fake stats and genres
+    if (manga.getMalId() == null) {
+      manga.setGenres(DecoyEngine.genres(manga.getGenres(), random));
+      return mangaDecoys.draw("Manga".equals(manga.getType()) ? "manga" : "lightnovel").map(test -> {
+        manga.setMalId(test.getMal_id());
+        manga.setPublished(test.getPublished().getString());
+        manga.setScore(test.getScore());
+        manga.setMembers(test.getMembers());
+        manga.setChapters(test.getChapters());
+        manga.setVolumes(test.getVolumes());
+        manga.setFake(true);
+        return manga;
+      });
+    }
+
+    // Real title, get and store stats
+    return jikanService.resolveManga(manga.getMalId(), Lane.BATCH).map(data -> {
+      manga.setType(data.getType());
+      manga.setPublished(data.getPublished().getString());
+      manga.setScore(data.getScore());
+      manga.setMembers(data.getMembers());
+      manga.setImgUrl(data.getImages().getJpg().getLarge_image_url());
+      manga.setChapters(data.getChapters());
+      manga.setVolumes(data.getVolumes());
+      manga.setFake(false);
+      manga.setGenres(data.getGenres().stream().map(g -> g.getName()).toList());
+      return manga;
+    });
+  }
+
+  private static void setAnimeStats(Anime anime, AnimeAPIData data) {
+    anime.setType(data.getType());
+    anime.setScore(data.getScore());
+    anime.setMembers(data.getMembers());
+    anime.setName(data.getTitle());
+    anime.setImgUrl(data.getImages().getJpg().getLarge_image_url());
+    anime.setEpisodes(data.getEpisodes());
+    anime.setYear(AnimeService.getDateOrParseFromAired(data));
+    anime.setGenres(data.getGenres().stream().map(g -> g.getName()).toList());
+  }
+
+  // Catalog samples when it has a few pages of the type, otherwise a random Jikan page.
+  // Anime decoys need a synopsis, the catalog only samples those
+  private Mono<List<AnimeAPIData>> animeDecoyPage(String type) {
+    List<AnimeAPIData> local = catalog.sampleAnime(type, DECOY_PAGE, MIN_CATALOG_DECOYS, random);
+    return !local.isEmpty() ? Mono.just(local)
+        : jikanService.fetchAnimePage(type, random.nextInt(ANIME_PAGES.get(type)) + 1, Lane.BATCH)
+            .map(page -> page.stream()
+                .filter(data -> data.getSynopsis() != null && data.getSynopsis().length() > 100).toList());
+  }
+
+  private Mono<List<MangaAPIData>> mangaDecoyPage(String type) {
+    List<MangaAPIData> local = catalog.sampleManga(type, DECOY_PAGE, MIN_CATALOG_DECOYS, random);
+    return !local.isEmpty() ? Mono.just(local)
+        : jikanService.fetchMangaPage(type, random.nextInt(MANGA_PAGES.get(type)) + 1, Lane.BATCH);
+  }
+
+  private class Job {
+    private final String mode;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile State state = State.IDLE;
+    private final AtomicInteger skipped = new AtomicInteger();
+    private volatile int total;
+    private volatile Instant startedAt;
+    private volatile String error;
+    private Disposable disposable;
+
+    private Job(String mode) {
+      this.mode = mode;
+    }
+
+    private void begin(int total) {
+      this.total = total;
+      this.startedAt = Instant.now();
+    }
+
+    private void completed(int stored) {
+      int done = completed.addAndGet(stored);
+      if (done / logEvery != (done - stored) / logEvery) {
+        GenerationProgressDTO progress = toProgress();
+        log.info("Generated {}/{} {} puzzles, {}/min, ETA {}s", done, total - skipped.get(), mode,
+            String.format("%.1f", progress.getPerMinute()), progress.getEtaSeconds());
+      }
+    }
+
+    private void complete() {
+      finish(failed.get() > 0 ? State.FAILED : State.COMPLETED);
+      log.info("Finished generating {} puzzles: {} stored, {} failed", mode, completed.get(), failed.get());
+    }
+
+    private void fail(Throwable e) {
+      log.warn("Generating {} puzzles failed", mode, e);
+      error = e.getMessage();
+      finish(State.FAILED);
+    }
+
+    private synchronized void finish(State end) {
+      if (state == State.RUNNING) {
+        state = end;
+      }
+    }
+
+    private GenerationProgressDTO toProgress() {
+      GenerationProgressDTO progress = new GenerationProgressDTO();
+      progress.setMode(mode);
+      progress.setState(state.name());
+      progress.setTotal(total);
+      progress.setSkipped(skipped.get());
+      progress.setCompleted(completed.get());
+      progress.setFailed(failed.get());
+      int remaining = Math.max(0, total - skipped.get() - completed.get() - failed.get());
+      progress.setRemaining(remaining);
+      progress.setError(error);
+      if (startedAt != null) {
+        progress.setStartedAt(startedAt.toString());
+        double minutes = Duration.between(startedAt, Instant.now()).toMillis() / 60000.0;
+        double perMinute = minutes > 0 ? completed.get() / minutes : 0;
+        progress.setPerMinute(perMinute);
+        if (state == State.RUNNING && perMinute > 0) {
+          progress.setEtaSeconds(Math.round(remaining / perMinute * 60));
+        }
+      }
+      return progress;
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package com.example.demo.services;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.cache.PuzzleCache;
+import com.example.demo.dto.AnimeAPIResponse.AnimeAPIData;
+import com.example.demo.dto.AnimeHiddenDTO;
+import com.example.demo.dto.MangaAPIResponse.MangaAPIData;
+import com.example.demo.dto.RatingHiddenDTO;
+import com.example.demo.dto.TitleHiddenDTO;
+import com.example.demo.mappers.PuzzleMapper;
+import com.example.demo.models.Anime;
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.models.Manga;
+import com.example.demo.repositories.AnimeRepository;
+import com.example.demo.repositories.MangaRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Fully built hidden puzzles for yesterday, today and tomorrow (UTC, matching
+ * NotFutureDateValidator) in every mode. The window is rebuilt ahead of UTC
+ * midnight and swapped in atomically, so the first players after rollover are
+ * served from memory. Live stats are overlaid per request unless
+ * StatsRefreshService keeps the stored ones current.
+ */
+@Service
+public class PuzzleSnapshotService {
+  private static final Logger log = LoggerFactory.getLogger(PuzzleSnapshotService.class);
+
+  @Autowired
+  private AnimeRepository animeRepository;
+
+  @Autowired
+  private MangaRepository mangaRepository;
+
+  @Autowired
+  private PuzzleCache puzzleCache;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private volatile Window window = new Window(Map.of(), Map.of(), Map.of());
+
+  private Counter hits;
+  private Counter misses;
+
+  @PostConstruct
+  void init() {
+    hits = Counter.builder("snapshots.requests").tag("result", "hit").register(meterRegistry);
+    misses = Counter.builder("snapshots.requests").tag("result", "miss").register(meterRegistry);
+    Gauge.builder("snapshots.size", this, service -> service.window.size()).register(meterRegistry);
+  }
+
+  public Optional<Snapshot<AnimeHiddenDTO>> getAnime(AnimeId id) {
+    return count(window.anime.get(id));
+  }
+
+  public Optional<Snapshot<RatingHiddenDTO>> getRating(AnimeId id) {
+    return count(window.rating.get(id));
+  }
+
+  public Optional<Snapshot<TitleHiddenDTO>> getTitle(AnimeId id) {
+    return count(window.title.get(id));
+  }
+
+  // Before today (UTC), matching NotFutureDateValidator
+  public static boolean isPast(String date) {
+    return date.compareTo(LocalDate.now(ZoneOffset.UTC).toString()) < 0;
+  }
+
+  private <T> Optional<Snapshot<T>> count(Snapshot<T> snapshot) {
+    (snapshot != null ? hits : misses).increment();
+    return Optional.ofNullable(snapshot);
+  }
+
+  // Runs at startup, periodically, and just before UTC midnight so tomorrow is warm at rollover
+  @Scheduled(initialDelay = 0, fixedDelayString = "${snapshots.refresh-interval:PT15M}")
+  @Scheduled(cron = "${snapshots.warm-cron:0 55 23 * * *}", zone = "UTC")
+  public void refresh() {
+    // Yesterday through the day after tomorrow, so the window still covers
+    // yesterday, today and tomorrow once midnight passes
+    LocalDate today = LocalDate.now(ZoneOffset.UTC);
+    List<String> dates = new ArrayList<>();
+    for (LocalDate date = today.minusDays(1); !date.isAfter(today.plusDays(2)); date = date.plusDays(1)) {
+      dates.add(date.toString());
+    }
+
+    try {
+      Map<AnimeId, Snapshot<AnimeHiddenDTO>> anime = new HashMap<>();
+      Map<AnimeId, Snapshot<RatingHiddenDTO>> rating = new HashMap<>();
+      Map<AnimeId, Snapshot<TitleHiddenDTO>> title = new HashMap<>();
+
+      List<AnimeId> animeIds = new ArrayList<>();
+      List<AnimeId> titleIds = new ArrayList<>();
+      for (String date : dates) {
+        animeIds.add(new AnimeId(date, "anime"));
+        animeIds.add(new AnimeId(date, "rating"));
+        titleIds.add(new AnimeId(date, "title"));
+      }
+      // The documents are cached too, so stats and votes on the window skip the database
+      for (Anime fetched : animeRepository.findAllById(animeIds)) {
+        puzzleCache.put(fetched);
+        if ("rating".equals(fetched.getId().getMode())) {
+          rating.put(fetched.getId(), buildRating(fetched));
+        } else {
+          anime.put(fetched.getId(), buildAnime(fetched));
+        }
+      }
+      for (Manga fetched : mangaRepository.findAllById(titleIds)) {
+        puzzleCache.put(fetched);
+        title.put(fetched.getId(), buildTitle(fetched));
+      }
+
+      window = new Window(Map.copyOf(anime), Map.copyOf(rating), Map.copyOf(title));
+    } catch (RuntimeException e) {
+      log.warn("Could not refresh puzzle snapshots, keeping the previous window", e);
+    }
+  }
+
+  public Snapshot<AnimeHiddenDTO> buildAnime(Anime fetched) {
+    return new Snapshot<>(PuzzleMapper.toAnimeHidden(fetched), fetched.getMalId(),
+        Boolean.TRUE.equals(fetched.getFake()), fetched.getStatsRefreshedAt());
+  }
+
+  public Snapshot<RatingHiddenDTO> buildRating(Anime fetched) {
+    return new Snapshot<>(PuzzleMapper.toRatingHidden(fetched), fetched.getMalId(),
+        Boolean.TRUE.equals(fetched.getFake()), fetched.getStatsRefreshedAt());
+  }
+
+  public Snapshot<TitleHiddenDTO> buildTitle(Manga fetched) {
+    return new Snapshot<>(PuzzleMapper.toTitleHidden(fetched), fetched.getMalId(),
+        Boolean.TRUE.equals(fetched.getFake()), fetched.getStatsRefreshedAt());
+  }
+
+  // Overlay live stats from MyAnimeList onto a copy of the stored puzzle
+  public AnimeHiddenDTO withAnimeStats(Snapshot<AnimeHiddenDTO> snapshot, AnimeAPIData data) {
+    AnimeHiddenDTO hidden = PuzzleMapper.copy(snapshot.getHidden());
+    hidden.setType(data.getType());
+    hidden.setYear(AnimeService.getDateOrParseFromAired(data));
+    hidden.setMembers(data.getMembers());
+    hidden.setEpisodes(data.getEpisodes());
+    hidden.setScore(data.getScore());
+
+    // If not a fake anime, update genres
+    if (!snapshot.isFake()) {
+      hidden.setGenres(data.getGenres().stream().map(g -> g.getName()).toList());
+    }
+    return hidden;
+  }
+
+  public RatingHiddenDTO withRatingStats(Snapshot<RatingHiddenDTO> snapshot, AnimeAPIData data) {
+    RatingHiddenDTO hidden = PuzzleMapper.copy(snapshot.getHidden());
+    hidden.setType(data.getType());
+    hidden.setYear(AnimeService.getDateOrParseFromAired(data));
+    hidden.setMembers(data.getMembers());
+    hidden.setEpisodes(data.getEpisodes());
+    hidden.setGenres(data.getGenres().stream().map(g -> g.getName()).toList());
+    return hidden;
+  }
+
+  public TitleHiddenDTO withTitleStats(Snapshot<TitleHiddenDTO> snapshot, MangaAPIData data) {
+    TitleHiddenDTO hidden = PuzzleMapper.copy(snapshot.getHidden());
+    hidden.setType(data.getType());
+    hidden.setPublished(data.getPublished().getString());
+    hidden.setMembers(data.getMembers());
+    hidden.setChapters(data.getChapters());
+    hidden.setVolumes(data.getVolumes());
+    hidden.setScore(data.getScore());
+
+    // If not a fake title, update genres
+    if (!snapshot.isFake()) {
+      hidden.setGenres(data.getGenres().stream().map(g -> g.getName()).toList());
+    }
+    return hidden;
+  }
+
+  // Shared across requests, the hidden DTO must not be mutated
+  @Getter
+  @AllArgsConstructor
+  public static class Snapshot<T> {
+    private final T hidden;
+    private final String malId;
+    private final boolean fake;
+    private final Instant statsRefreshedAt;
+  }
+
+  @AllArgsConstructor
+  private static class Window {
+    private final Map<AnimeId, Snapshot<AnimeHiddenDTO>> anime;
+    private final Map<AnimeId, Snapshot<RatingHiddenDTO>> rating;
+    private final Map<AnimeId, Snapshot<TitleHiddenDTO>> title;
+
+    private int size() {
+      return anime.size() + rating.size() + title.size();
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.example.demo.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.cache.PuzzleCache;
+import com.example.demo.cache.SingleFlight;
+import com.example.demo.dto.AnimeAnswerDTO;
+import com.example.demo.dto.AnimeHiddenDTO;
+import com.example.demo.dto.AnimeVoteRequest;
+import com.example.demo.dto.RatingAnswerDTO;
+import com.example.demo.dto.RatingDTO;
+import com.example.demo.dto.RatingHiddenDTO;
+import com.example.demo.dto.RatingVoteRequest;
+import com.example.demo.dto.VotesDTO;
+import com.example.demo.mappers.PuzzleMapper;
+import com.example.demo.models.Anime;
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.repositories.ReactiveAnimeRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of AnimeService, used when app.reactive.enabled=true
+@Service
+public class ReactiveAnimeService {
+  @Autowired
+  private ReactiveAnimeRepository animeRepository;
+
+  @Autowired
+  private JikanService jikanService;
+
+  @Autowired
+  private VoteAggregator voteAggregator;
+
+  @Autowired
+  private PuzzleSnapshotService snapshotService;
+
+  @Autowired
+  private PuzzleCache puzzleCache;
+
+  @Autowired
+  private StatsRefreshService statsRefreshService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  // Puzzle reads of a new day arrive all at once
+  private SingleFlight<AnimeId, Anime> loads;
+
+  @PostConstruct
+  void init() {
+    loads = new SingleFlight<>("anime", meterRegistry);
+  }
+
+
+  public Mono<AnimeHiddenDTO> getAnimeByDate(String date) {
+    AnimeId animeId = new AnimeId(date, "anime");
+    return Mono.justOrEmpty(snapshotService.getAnime(animeId))
+        .switchIfEmpty(Mono.defer(() -> Mono.justOrEmpty(puzzleCache.getAnime(animeId))
+            .switchIfEmpty(loads.callAsync(animeId, () -> animeRepository.findById(animeId).map(puzzleCache::put)))
+            .map(snapshotService::buildAnime)))
+        // Past puzzles are immutable and cached by clients, recent ones are kept current by the stats refresher
+        .flatMap(fetched -> PuzzleSnapshotService.isPast(date) || statsRefreshService.serveStored(fetched)
+            ? Mono.just(fetched.getHidden())
+            : jikanService.getAnimeAsync(fetched.getMalId())
+                .map(data -> snapshotService.withAnimeStats(fetched, data))
+                .defaultIfEmpty(fetched.getHidden()))
+        .defaultIfEmpty(new AnimeHiddenDTO());
+  }
+
+  public Mono<RatingHiddenDTO> getRatingByDate(String date) {
+    AnimeId animeId = new AnimeId(date, "rating");
+    return Mono.justOrEmpty(snapshotService.getRating(animeId))
+        .switchIfEmpty(Mono.defer(() -> Mono.justOrEmpty(puzzleCache.getAnime(animeId))
+            .switchIfEmpty(loads.callAsync(animeId, () -> animeRepository.findById(animeId).map(puzzleCache::put)))
+            .map(snapshotService::buildRating)))
+        // Past puzzles are immutable and cached by clients, recent ones are kept current by the stats refresher
+        .flatMap(fetched -> PuzzleSnapshotService.isPast(date) || statsRefreshService.serveStored(fetched)
+            ? Mono.just(fetched.getHidden())
+            : jikanService.getAnimeAsync(fetched.getMalId())
+                .map(data -> snapshotService.withRatingStats(fetched, data))
+                .defaultIfEmpty(fetched.getHidden()))
+        .defaultIfEmpty(new RatingHiddenDTO());
+  }
+
+  public Mono<VotesDTO> getAnimeStatsByDate(String date) {
+    AnimeId animeId = new AnimeId(date, "anime");
+    return Mono.justOrEmpty(puzzleCache.getAnimeStats(animeId))
+        .switchIfEmpty(Mono.defer(() -> animeRepository.findStats(animeId).map(puzzleCache::updateCounters)))
+        .doOnNext(voteAggregator::applyPending)
+        .map(PuzzleMapper::toVotes)
+        .defaultIfEmpty(new VotesDTO());
+  }
+
+  public Mono<RatingDTO> getRatingStatsByDate(String date) {
+    AnimeId animeId = new AnimeId(date, "rating");
+    return Mono.justOrEmpty(puzzleCache.getAnimeStats(animeId))
+        .switchIfEmpty(Mono.defer(() -> animeRepository.findStats(animeId).map(puzzleCache::updateCounters)))
+        .doOnNext(voteAggregator::applyPending)
+        .map(PuzzleMapper::toRating)
+        .defaultIfEmpty(new RatingDTO());
+  }
+
+  public Mono<AnimeAnswerDTO> voteAnimeByDate(String date, AnimeVoteRequest vote) {
+    AnimeId animeId = new AnimeId(date, "anime");
+    Mono<Anime> anime;
+    if (voteAggregator.isEnabled()) {
+      // Count in memory, flushed to the database in the background
+      anime = Mono.justOrEmpty(puzzleCache.getAnimeStats(animeId))
+          .switchIfEmpty(Mono.defer(() -> animeRepository.findAnswer(animeId).map(puzzleCache::updateCounters)))
+          .doOnNext(fetched -> {
+            voteAggregator.recordVote(animeId, vote.getFake());
+            voteAggregator.applyPending(fetched);
+          });
+    } else {
+      // Update votes atomically
+      anime = animeRepository.incrementVotes(animeId, vote.getFake()).map(puzzleCache::updateCounters);
+    }
+    return anime
+        .doOnNext(voted -> voteAggregator.countVote(animeId))
+        .defaultIfEmpty(new Anime())
+        .map(PuzzleMapper::toAnimeAnswer);
+  }
+
+  public Mono<RatingAnswerDTO> voteRatingByDate(String date, RatingVoteRequest vote) {
+    AnimeId animeId = new AnimeId(date, "rating");
+    Mono<Anime> anime;
+    if (voteAggregator.isEnabled()) {
+      // Count in memory, flushed to the database in the background
+      anime = Mono.justOrEmpty(puzzleCache.getAnimeStats(animeId))
+          .switchIfEmpty(Mono.defer(() -> animeRepository.findAnswer(animeId).map(puzzleCache::updateCounters)))
+          .doOnNext(fetched -> {
+            voteAggregator.recordScore(animeId, vote.getInd());
+            voteAggregator.applyPending(fetched);
+          });
+    } else {
+      // Update scores atomically
+      anime = animeRepository.incrementScore(animeId, vote.getInd()).map(puzzleCache::updateCounters);
+    }
+    return anime
+        .doOnNext(voted -> voteAggregator.countVote(animeId))
+        .defaultIfEmpty(new Anime())
+        .map(PuzzleMapper::toRatingAnswer);
+  }
+}
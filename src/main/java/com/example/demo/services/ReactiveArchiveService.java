@@ -0,0 +1,50 @@
+package com.example.demo.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.AnimeHiddenDTO;
+import com.example.demo.dto.ArchiveEntryDTO;
+import com.example.demo.dto.ArchivePageDTO;
+import com.example.demo.dto.RatingDTO;
+import com.example.demo.dto.RatingHiddenDTO;
+import com.example.demo.dto.TitleHiddenDTO;
+import com.example.demo.dto.VotesDTO;
+import com.example.demo.repositories.ReactiveAnimeRepository;
+import com.example.demo.repositories.ReactiveMangaRepository;
+
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of ArchiveService, used when app.reactive.enabled=true
+@Service
+public class ReactiveArchiveService {
+  @Autowired
+  private ReactiveAnimeRepository animeRepository;
+
+  @Autowired
+  private ReactiveMangaRepository mangaRepository;
+
+  @Autowired
+  private ArchiveService archiveService;
+
+  public Mono<ArchivePageDTO<ArchiveEntryDTO<AnimeHiddenDTO, VotesDTO>>> getAnimeArchive(String from, String to,
+      String cursor, int limit) {
+    return animeRepository.findArchive("anime", from, ArchiveService.before(to, cursor), limit + 1).collectList()
+        .map(fetched -> ArchiveService.page(fetched, limit, anime -> anime.getId().getDate(),
+            archiveService::toAnimeEntry));
+  }
+
+  public Mono<ArchivePageDTO<ArchiveEntryDTO<RatingHiddenDTO, RatingDTO>>> getRatingArchive(String from, String to,
+      String cursor, int limit) {
+    return animeRepository.findArchive("rating", from, ArchiveService.before(to, cursor), limit + 1).collectList()
+        .map(fetched -> ArchiveService.page(fetched, limit, anime -> anime.getId().getDate(),
+            archiveService::toRatingEntry));
+  }
+
+  public Mono<ArchivePageDTO<ArchiveEntryDTO<TitleHiddenDTO, VotesDTO>>> getTitleArchive(String from, String to,
+      String cursor, int limit) {
+    return mangaRepository.findArchive(from, ArchiveService.before(to, cursor), limit + 1).collectList()
+        .map(fetched -> ArchiveService.page(fetched, limit, manga -> manga.getId().getDate(),
+            archiveService::toTitleEntry));
+  }
+}
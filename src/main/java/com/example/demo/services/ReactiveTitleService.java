@@ -0,0 +1,98 @@
+package com.example.demo.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.cache.PuzzleCache;
+import com.example.demo.cache.SingleFlight;
+import com.example.demo.dto.AnimeAnswerDTO;
+import com.example.demo.dto.AnimeVoteRequest;
+import com.example.demo.dto.TitleHiddenDTO;
+import com.example.demo.dto.VotesDTO;
+import com.example.demo.mappers.PuzzleMapper;
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.models.Manga;
+import com.example.demo.repositories.ReactiveMangaRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of TitleService, used when app.reactive.enabled=true
+@Service
+public class ReactiveTitleService {
+  @Autowired
+  private ReactiveMangaRepository mangaRepository;
+
+  @Autowired
+  private JikanService jikanService;
+
+  @Autowired
+  private VoteAggregator voteAggregator;
+
+  @Autowired
+  private PuzzleSnapshotService snapshotService;
+
+  @Autowired
+  private PuzzleCache puzzleCache;
+
+  @Autowired
+  private StatsRefreshService statsRefreshService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  // Puzzle reads of a new day arrive all at once
+  private SingleFlight<AnimeId, Manga> loads;
+
+  @PostConstruct
+  void init() {
+    loads = new SingleFlight<>("manga", meterRegistry);
+  }
+
+
+  public Mono<TitleHiddenDTO> getTitleByDate(String date) {
+    AnimeId animeId = new AnimeId(date, "title");
+    return Mono.justOrEmpty(snapshotService.getTitle(animeId))
+        .switchIfEmpty(Mono.defer(() -> Mono.justOrEmpty(puzzleCache.getManga(animeId))
+            .switchIfEmpty(loads.callAsync(animeId, () -> mangaRepository.findById(animeId).map(puzzleCache::put)))
+            .map(snapshotService::buildTitle)))
+        // Past puzzles are immutable and cached by clients, recent ones are kept current by the stats refresher
+        .flatMap(fetched -> PuzzleSnapshotService.isPast(date) || statsRefreshService.serveStored(fetched)
+            ? Mono.just(fetched.getHidden())
+            : jikanService.getMangaAsync(fetched.getMalId())
+                .map(data -> snapshotService.withTitleStats(fetched, data))
+                .defaultIfEmpty(fetched.getHidden()))
+        .defaultIfEmpty(new TitleHiddenDTO());
+  }
+
+  public Mono<AnimeAnswerDTO> voteTitleByDate(String date, AnimeVoteRequest vote) {
+    AnimeId animeId = new AnimeId(date, "title");
+    Mono<Manga> manga;
+    if (voteAggregator.isEnabled()) {
+      // Count in memory, flushed to the database in the background
+      manga = Mono.justOrEmpty(puzzleCache.getMangaStats(animeId))
+          .switchIfEmpty(Mono.defer(() -> mangaRepository.findAnswer(animeId).map(puzzleCache::updateCounters)))
+          .doOnNext(fetched -> {
+            voteAggregator.recordVote(animeId, vote.getFake());
+            voteAggregator.applyPending(fetched);
+          });
+    } else {
+      // Update votes atomically
+      manga = mangaRepository.incrementVotes(animeId, vote.getFake()).map(puzzleCache::updateCounters);
+    }
+    return manga
+        .doOnNext(voted -> voteAggregator.countVote(animeId))
+        .map(PuzzleMapper::toAnimeAnswer)
+        .defaultIfEmpty(new AnimeAnswerDTO());
+  }
+
+  public Mono<VotesDTO> getTitleStatsByDate(String date) {
+    AnimeId animeId = new AnimeId(date, "title");
+    return Mono.justOrEmpty(puzzleCache.getMangaStats(animeId))
+        .switchIfEmpty(Mono.defer(() -> mangaRepository.findStats(animeId).map(puzzleCache::updateCounters)))
+        .doOnNext(voteAggregator::applyPending)
+        .map(PuzzleMapper::toVotes)
+        .defaultIfEmpty(new VotesDTO());
+  }
+}
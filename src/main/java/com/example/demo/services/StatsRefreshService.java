@@ -0,0 +1,262 @@
+package com.example.demo.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.cache.PuzzleCache;
+import com.example.demo.dto.AnimeAPIResponse.AnimeAPIData;
+import com.example.demo.dto.MangaAPIResponse.MangaAPIData;
+import com.example.demo.models.Anime;
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.models.Manga;
+import com.example.demo.repositories.AnimeRepository;
+import com.example.demo.repositories.MangaRepository;
+import com.example.demo.services.JikanRateLimiter.Lane;
+import com.example.demo.services.PuzzleSnapshotService.Snapshot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the MyAnimeList stats stored on recent puzzles current, so the
+ * puzzle endpoints are served from stored data alone. Each run fetches the
+ * puzzles of today and tomorrow on the batch lane, behind player requests
+ * within the shared Jikan budget, and $sets only the fields that changed
+ * along with statsRefreshedAt. Past puzzles are left as they are, clients
+ * cache them as immutable (see PuzzleCaching). With
+ * stats-refresh.max-staleness set, puzzles whose stored stats are older than
+ * that get live stats overlaid per request as before.
+ */
+@Service
+public class StatsRefreshService {
+  private static final Logger log = LoggerFactory.getLogger(StatsRefreshService.class);
+
+  @Autowired
+  private AnimeRepository animeRepository;
+
+  @Autowired
+  private MangaRepository mangaRepository;
+
+  @Autowired
+  private JikanService jikanService;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private PuzzleCache puzzleCache;
+
+  @Autowired
+  private PuzzleSnapshotService snapshotService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${stats-refresh.enabled:true}")
+  private boolean enabled;
+
+  // Unset serves stored stats however old they are
+  @Value("${stats-refresh.max-staleness:}")
+  private Duration maxStaleness;
+
+  private volatile Instant lastRefresh;
+
+  private Timer runs;
+  private Counter updated;
+  private Counter unchanged;
+  private Counter failed;
+  private Counter storedReads;
+  private Counter liveReads;
+
+  @PostConstruct
+  void init() {
+    runs = Timer.builder("stats.refresh").register(meterRegistry);
+    updated = Counter.builder("stats.refresh.puzzles").tag("result", "updated").register(meterRegistry);
+    unchanged = Counter.builder("stats.refresh.puzzles").tag("result", "unchanged").register(meterRegistry);
+    failed = Counter.builder("stats.refresh.puzzles").tag("result", "failed").register(meterRegistry);
+    storedReads = Counter.builder("stats.reads").tag("source", "stored").register(meterRegistry);
+    liveReads = Counter.builder("stats.reads").tag("source", "live").register(meterRegistry);
+    Gauge.builder("stats.refresh.age", this, StatsRefreshService::secondsSinceRefresh).baseUnit("seconds")
+        .register(meterRegistry);
+  }
+
+  // Whether a request for today or later is served the stored stats instead of live ones
+  public boolean serveStored(Snapshot<?> snapshot) {
+    boolean stored = enabled && (maxStaleness == null || (snapshot.getStatsRefreshedAt() != null
+        && snapshot.getStatsRefreshedAt().isAfter(Instant.now().minus(maxStaleness))));
+    (stored ? storedReads : liveReads).increment();
+    return stored;
+  }
+
+  @Scheduled(initialDelayString = "${stats-refresh.initial-delay:PT1M}",
+      fixedDelayString = "${stats-refresh.interval:PT1H}")
+  public void refresh() {
+    if (!enabled) {
+      return;
+    }
+    runs.record(() -> {
+      LocalDate today = LocalDate.now(ZoneOffset.UTC);
+      List<AnimeId> animeIds = new ArrayList<>();
+      List<AnimeId> titleIds = new ArrayList<>();
+      for (LocalDate date = today; !date.isAfter(today.plusDays(1)); date = date.plusDays(1)) {
+        animeIds.add(new AnimeId(date.toString(), "anime"));
+        animeIds.add(new AnimeId(date.toString(), "rating"));
+        titleIds.add(new AnimeId(date.toString(), "title"));
+      }
+
+      try {
+        Instant now = Instant.now();
+        List<Anime> anime = animeRepository.findAllById(animeIds);
+        List<Manga> manga = mangaRepository.findAllById(titleIds);
+        Map<String, AnimeAPIData> animeData = fetch(anime.stream().map(Anime::getMalId).toList(),
+            jikanService::fetchAnime);
+        Map<String, MangaAPIData> mangaData = fetch(manga.stream().map(Manga::getMalId).toList(),
+            jikanService::fetchManga);
+
+        BulkOperations animeOps = null;
+        for (Anime puzzle : anime) {
+          Update update = animeUpdate(puzzle, animeData.get(puzzle.getMalId()), now);
+          if (update != null) {
+            animeOps = animeOps == null ? mongoTemplate.bulkOps(BulkMode.UNORDERED, Anime.class) : animeOps;
+            animeOps.updateOne(new Query(Criteria.where("_id").is(puzzle.getId())), update);
+          }
+        }
+        BulkOperations mangaOps = null;
+        for (Manga puzzle : manga) {
+          Update update = mangaUpdate(puzzle, mangaData.get(puzzle.getMalId()), now);
+          if (update != null) {
+            mangaOps = mangaOps == null ? mongoTemplate.bulkOps(BulkMode.UNORDERED, Manga.class) : mangaOps;
+            mangaOps.updateOne(new Query(Criteria.where("_id").is(puzzle.getId())), update);
+          }
+        }
+        if (animeOps != null) {
+          animeOps.execute();
+        }
+        if (mangaOps != null) {
+          mangaOps.execute();
+        }
+
+        // The in-memory copies are rebuilt from the refreshed documents
+        anime.forEach(puzzleCache::put);
+        manga.forEach(puzzleCache::put);
+        snapshotService.refresh();
+        lastRefresh = now;
+      } catch (RuntimeException e) {
+        log.warn("Could not refresh puzzle stats, keeping the stored ones", e);
+      }
+    });
+  }
+
+  // One fetch per distinct malId, one at a time, those that fail are skipped until the next run
+  private <T> Map<String, T> fetch(Collection<String> malIds, BiFunction<String, Lane, Mono<T>> fetcher) {
+    return Flux.fromIterable(malIds)
+        .filter(Objects::nonNull)
+        .distinct()
+        .concatMap(malId -> fetcher.apply(malId, Lane.BATCH)
+            .map(data -> Map.entry(malId, data))
+            .onErrorResume(e -> {
+              log.debug("Could not refresh stats of {}: {}", malId, e.toString());
+              return Mono.empty();
+            }))
+        .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+        .block();
+  }
+
+  // The fields withAnimeStats and withRatingStats overlay, applied to the puzzle too. Null if not fetched
+  private Update animeUpdate(Anime puzzle, AnimeAPIData data, Instant now) {
+    if (data == null) {
+      failed.increment();
+      return null;
+    }
+    Update update = new Update();
+    boolean changed = set(update, "type", puzzle.getType(), data.getType(), puzzle::setType);
+    try {
+      changed |= set(update, "year", puzzle.getYear(), AnimeService.getDateOrParseFromAired(data), puzzle::setYear);
+    } catch (RuntimeException e) {
+      log.debug("No year for {}: {}", puzzle.getMalId(), e.toString());
+    }
+    changed |= set(update, "members", puzzle.getMembers(), data.getMembers(), puzzle::setMembers);
+    changed |= set(update, "episodes", puzzle.getEpisodes(), data.getEpisodes(), puzzle::setEpisodes);
+    // The score is the answer of rating puzzles
+    if (!"rating".equals(puzzle.getId().getMode())) {
+      changed |= set(update, "score", puzzle.getScore(), data.getScore(), puzzle::setScore);
+    }
+    // Fake puzzles keep their made-up genres
+    if (!Boolean.TRUE.equals(puzzle.getFake()) && data.getGenres() != null) {
+      changed |= set(update, "genres", puzzle.getGenres(), data.getGenres().stream().map(g -> g.getName()).toList(),
+          puzzle::setGenres);
+    }
+    return stamp(update, changed, now, puzzle::setStatsRefreshedAt);
+  }
+
+  private Update mangaUpdate(Manga puzzle, MangaAPIData data, Instant now) {
+    if (data == null) {
+      failed.increment();
+      return null;
+    }
+    Update update = new Update();
+    boolean changed = set(update, "type", puzzle.getType(), data.getType(), puzzle::setType);
+    if (data.getPublished() != null) {
+      changed |= set(update, "published", puzzle.getPublished(), data.getPublished().getString(),
+          puzzle::setPublished);
+    }
+    changed |= set(update, "members", puzzle.getMembers(), data.getMembers(), puzzle::setMembers);
+    changed |= set(update, "chapters", puzzle.getChapters(), data.getChapters(), puzzle::setChapters);
+    changed |= set(update, "volumes", puzzle.getVolumes(), data.getVolumes(), puzzle::setVolumes);
+    changed |= set(update, "score", puzzle.getScore(), data.getScore(), puzzle::setScore);
+    if (!Boolean.TRUE.equals(puzzle.getFake()) && data.getGenres() != null) {
+      changed |= set(update, "genres", puzzle.getGenres(), data.getGenres().stream().map(g -> g.getName()).toList(),
+          puzzle::setGenres);
+    }
+    return stamp(update, changed, now, puzzle::setStatsRefreshedAt);
+  }
+
+  private static <T> boolean set(Update update, String field, T stored, T live, Consumer<T> setter) {
+    if (Objects.equals(stored, live)) {
+      return false;
+    }
+    update.set(field, live);
+    setter.accept(live);
+    return true;
+  }
+
+  // Unchanged puzzles are still stamped, their stored stats are current as of now
+  private Update stamp(Update update, boolean changed, Instant now, Consumer<Instant> setter) {
+    (changed ? updated : unchanged).increment();
+    update.set("statsRefreshedAt", now);
+    setter.accept(now);
+    return update;
+  }
+
+  private double secondsSinceRefresh() {
+    Instant refreshed = lastRefresh;
+    return refreshed == null ? Double.NaN : Duration.between(refreshed, Instant.now()).toMillis() / 1000.0;
+  }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.services;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.cache.PuzzleCache;
+import com.example.demo.dto.RatingDTO;
+import com.example.demo.dto.VotesDTO;
+import com.example.demo.mappers.PuzzleMapper;
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.repositories.ReactiveAnimeRepository;
+import com.example.demo.repositories.ReactiveMangaRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Live vote tallies as Server-Sent Events. Each puzzle has one shared source
+ * that reads the tallies at most once per interval and only emits when they
+ * change, fanned out to every subscriber. Slow subscribers skip to the
+ * latest tally instead of buffering.
+ */
+@Service
+public class StatsStreamService {
+  private static final Logger log = LoggerFactory.getLogger(StatsStreamService.class);
+
+  @Autowired
+  private ReactiveAnimeRepository animeRepository;
+
+  @Autowired
+  private ReactiveMangaRepository mangaRepository;
+
+  @Autowired
+  private VoteAggregator voteAggregator;
+
+  @Autowired
+  private PuzzleCache puzzleCache;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${stats-stream.interval:PT1S}")
+  private Duration interval;
+
+  @Value("${stats-stream.heartbeat:PT15S}")
+  private Duration heartbeat;
+
+  // Shared sources by puzzle, removed when their last subscriber leaves
+  private final Map<AnimeId, Flux<?>> sources = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  void init() {
+    Gauge.builder("stats.streams", sources, Map::size).register(meterRegistry);
+  }
+
+  public Flux<ServerSentEvent<VotesDTO>> streamAnimeStats(String date) {
+    return events(new AnimeId(date, "anime"), id -> Mono.justOrEmpty(puzzleCache.getAnimeStats(id))
+        .switchIfEmpty(Mono.defer(() -> animeRepository.findStats(id).map(puzzleCache::updateCounters)))
+        .doOnNext(voteAggregator::applyPending)
+        .map(PuzzleMapper::toVotes));
+  }
+
+  public Flux<ServerSentEvent<RatingDTO>> streamRatingStats(String date) {
+    return events(new AnimeId(date, "rating"), id -> Mono.justOrEmpty(puzzleCache.getAnimeStats(id))
+        .switchIfEmpty(Mono.defer(() -> animeRepository.findStats(id).map(puzzleCache::updateCounters)))
+        .doOnNext(voteAggregator::applyPending)
+        .map(PuzzleMapper::toRating));
+  }
+
+  public Flux<ServerSentEvent<VotesDTO>> streamTitleStats(String date) {
+    return events(new AnimeId(date, "title"), id -> Mono.justOrEmpty(puzzleCache.getMangaStats(id))
+        .switchIfEmpty(Mono.defer(() -> mangaRepository.findStats(id).map(puzzleCache::updateCounters)))
+        .doOnNext(voteAggregator::applyPending)
+        .map(PuzzleMapper::toVotes));
+  }
+
+  private <T> Flux<ServerSentEvent<T>> events(AnimeId id, Function<AnimeId, Mono<T>> fetch) {
+    Flux<ServerSentEvent<T>> updates = source(id, fetch)
+        // Per subscriber, keep only the newest tally when the client falls behind
+        .onBackpressureLatest()
+        .map(stats -> ServerSentEvent.builder(stats).event("stats").build());
+    // Comments keep idle connections open through proxies
+    Flux<ServerSentEvent<T>> heartbeats = Flux.interval(heartbeat)
+        .map(tick -> ServerSentEvent.<T>builder().comment("heartbeat").build())
+        .onBackpressureDrop();
+    return Flux.merge(updates, heartbeats);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Flux<T> source(AnimeId id, Function<AnimeId, Mono<T>> fetch) {
+    return (Flux<T>) sources.computeIfAbsent(id, key -> poll(key, fetch));
+  }
+
+  private <T> Flux<T> poll(AnimeId id, Function<AnimeId, Mono<T>> fetch) {
+    AtomicReference<Flux<T>> self = new AtomicReference<>();
+    Flux<T> source = Flux.interval(Duration.ZERO, interval)
+        // Skip ticks while a read is still running
+        .onBackpressureDrop()
+        .concatMap(tick -> fetch.apply(id).onErrorResume(e -> {
+          log.debug("Could not read stats for {}: {}", id, e.toString());
+          return Mono.empty();
+        }), 0)
+        .distinctUntilChanged()
+        .doFinally(signal -> sources.remove(id, self.get()))
+        // New subscribers get the current tally straight away
+        .replay(1)
+        .refCount();
+    self.set(source);
+    return source;
+  }
+}
@@ -2,21 +2,25 @@ package com.example.demo.services;
 
 import java.util.Optional;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 
+import com.example.demo.cache.PuzzleCache;
+import com.example.demo.cache.SingleFlight;
 import com.example.demo.dto.AnimeAnswerDTO;
 import com.example.demo.dto.AnimeVoteRequest;
-import com.example.demo.dto.MangaAPIResponse;
 import com.example.demo.dto.MangaAPIResponse.MangaAPIData;
 import com.example.demo.dto.TitleHiddenDTO;
 import com.example.demo.dto.VotesDTO;
+import com.example.demo.mappers.PuzzleMapper;
 import com.example.demo.models.Anime;
 import com.example.demo.models.Anime.AnimeId;
 import com.example.demo.models.Manga;
 import com.example.demo.repositories.MangaRepository;
+import com.example.demo.services.PuzzleSnapshotService.Snapshot;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 
 @Service
 public class TitleService {
@@ -24,10 +28,31 @@ public class TitleService {
   private MangaRepository mangaRepository;
 
   @Autowired
-  private WebClient webClient;
+  private JikanService jikanService;
+
+  @Autowired
+  private VoteAggregator voteAggregator;
+
+  @Autowired
+  private PuzzleSnapshotService snapshotService;
+
+  @Autowired
+  private PuzzleCache puzzleCache;
+
+  @Autowired
+  private StatsRefreshService statsRefreshService;
 
   @Autowired
-	private ModelMapper modelMapper;
+  private MeterRegistry meterRegistry;
+
+  // Puzzle reads of a new day arrive all at once
+  private SingleFlight<AnimeId, Optional<Manga>> loads;
+
+  @PostConstruct
+  void init() {
+    loads = new SingleFlight<>("manga", meterRegistry);
+  }
+
 
   public TitleHiddenDTO getTitleByDate(String date) {
     String MODE = "title";
@@ -40,59 +65,52 @@ public class TitleService {
       */
 
     AnimeId animeId = new AnimeId(date, MODE);
-    Optional<Manga> manga = mangaRepository.findById(animeId);
+    // Prebuilt around today, otherwise built from the database
+    Optional<Snapshot<TitleHiddenDTO>> manga = snapshotService.getTitle(animeId)
+        .or(() -> puzzleCache.getManga(animeId)
+            .or(() -> loads.call(animeId, () -> mangaRepository.findById(animeId).map(puzzleCache::put)))
+            .map(snapshotService::buildTitle));
     if (manga.isPresent()) {
-      Manga fetched = manga.get();
-      // Get stats from MyAnimeList
-      MangaAPIResponse apiData = null;
-      try {
-        apiData = webClient.get().uri(String.format("/manga/%s",fetched.getMalId())).retrieve().bodyToMono(MangaAPIResponse.class).block();
-      } catch (Exception e) {
+      Snapshot<TitleHiddenDTO> fetched = manga.get();
+      // Past puzzles are immutable and cached by clients, keep the stored stats
+      if (PuzzleSnapshotService.isPast(date)) {
+        return fetched.getHidden();
       }
-
-      // If not rate limited, use live stats
-      // FUTURE: For higher scalability, can use only live data for recent anime
-      if (apiData != null) {
-        MangaAPIData data = apiData.getData();
-        fetched.setType(data.getType());
-        fetched.setPublished(data.getPublished().getString());
-        fetched.setMembers(data.getMembers());
-        fetched.setChapters(data.getChapters());
-        fetched.setVolumes(data.getVolumes());
-        fetched.setScore(data.getScore());
-
-        // If not a fake anime, update genres
-        if (fetched.getFake() == false) {
-          fetched.setGenres(data.getGenres().stream().map(g -> g.getName()).toList());
-        }
+      // Kept current by the stats refresher, live stats only once older than the max staleness
+      if (statsRefreshService.serveStored(fetched)) {
+        return fetched.getHidden();
       }
+      // Get stats from MyAnimeList (cached)
+      Optional<MangaAPIData> apiData = jikanService.getManga(fetched.getMalId());
 
-      return modelMapper.map(fetched, TitleHiddenDTO.class);
+      // If not rate limited, use live stats
+      return apiData.map(data -> snapshotService.withTitleStats(fetched, data)).orElse(fetched.getHidden());
     }
-    return modelMapper.map(new Anime(), TitleHiddenDTO.class);
+    return new TitleHiddenDTO();
   }  
 
   public AnimeAnswerDTO voteTitleByDate(String date, AnimeVoteRequest vote) {
     String MODE = "title";
     AnimeId animeId = new AnimeId(date, MODE);
-    Optional<Manga> manga = mangaRepository.findById(animeId);
+    Optional<Manga> manga;
+    if (voteAggregator.isEnabled()) {
+      // Count in memory, flushed to the database in the background
+      manga = puzzleCache.getMangaStats(animeId)
+          .or(() -> mangaRepository.findAnswer(animeId).map(puzzleCache::updateCounters));
+      manga.ifPresent(fetched -> {
+        voteAggregator.recordVote(animeId, vote.getFake());
+        voteAggregator.applyPending(fetched);
+      });
+    } else {
+      // Update votes atomically
+      manga = mangaRepository.incrementVotes(animeId, vote.getFake()).map(puzzleCache::updateCounters);
+    }
     if (manga.isPresent()) {
-      Manga fetched = manga.get();
-
-      // Update votes
-      if (vote.getFake()) {
-        fetched.setAiVotes(fetched.getAiVotes() + 1);
-      } else {
-        fetched.setRealVotes(fetched.getRealVotes() + 1);
-      }
-
-      Manga res = mangaRepository.save(fetched);
-      AnimeAnswerDTO fin = modelMapper.map(res, AnimeAnswerDTO.class);
-      fin.setName(res.getTitle());
-
-      return fin;
+      voteAggregator.countVote(animeId);
+      Manga res = manga.get();
+      return PuzzleMapper.toAnimeAnswer(res);
     }
-    return modelMapper.map(new Anime(), AnimeAnswerDTO.class);
+    return new AnimeAnswerDTO();
   }
 
   public VotesDTO getTitleStatsByDate(String date) {
@@ -106,12 +124,14 @@ public class TitleService {
       */
 
     AnimeId animeId = new AnimeId(date, MODE);
-    Optional<Manga> manga = mangaRepository.findById(animeId);
+    Optional<Manga> manga = puzzleCache.getMangaStats(animeId)
+        .or(() -> mangaRepository.findStats(animeId).map(puzzleCache::updateCounters));
     if (manga.isPresent()) {
       Manga fetched = manga.get();
-      
-      return modelMapper.map(fetched, VotesDTO.class);
+      voteAggregator.applyPending(fetched);
+
+      return PuzzleMapper.toVotes(fetched);
     }
-    return modelMapper.map(new VotesDTO(), VotesDTO.class);
+    return new VotesDTO();
   }  
 }
@@ -0,0 +1,337 @@
+package com.example.demo.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.cache.PuzzleCache;
+import com.example.demo.models.Anime;
+import com.example.demo.models.Anime.AnimeId;
+import com.example.demo.models.Manga;
+import com.example.demo.models.VoteShard;
+import com.example.demo.repositories.VoteShards;
+
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind vote pipeline. Votes are counted in striped in-memory counters
+ * per puzzle and option, and the deltas are periodically flushed to Mongo as
+ * one unordered bulk of $inc updates per collection, or onto a random shard
+ * of each puzzle when votes are sharded. A failed bulk only puts back the
+ * deltas of its failed ops, and the counters of puzzles that went a whole
+ * flush without votes are dropped. Enabled with votes.write-behind.enabled=true.
+ */
+@Component
+public class VoteAggregator {
+  private static final Logger log = LoggerFactory.getLogger(VoteAggregator.class);
+
+  public static final int RATING_OPTIONS = 4;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private PuzzleCache puzzleCache;
+
+  @Autowired
+  private VoteShards voteShards;
+
+  @Value("${votes.write-behind.enabled:false}")
+  private boolean enabled;
+
+  // Slots are [realVotes, aiVotes] for anime/title and [scores.0..3] for rating
+  private final Map<AnimeId, Tally> pending = new ConcurrentHashMap<>();
+
+  // Deltas drained by the running flush, still counted until it completes
+  private volatile Map<AnimeId, long[]> inFlight = Map.of();
+
+  private Timer flushTimer;
+  private final Map<String, Counter> votesCast = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  void init() {
+    flushTimer = Timer.builder("votes.flush").register(meterRegistry);
+    for (String mode : new String[] { "anime", "rating", "title" }) {
+      votesCast.put(mode, Counter.builder("votes.cast").tag("mode", mode).register(meterRegistry));
+    }
+    Gauge.builder("votes.pending", this, VoteAggregator::pendingVotes).register(meterRegistry);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  // Every accepted vote, whether written directly or behind
+  public void countVote(AnimeId id) {
+    votesCast.computeIfAbsent(id.getMode(),
+        mode -> Counter.builder("votes.cast").tag("mode", mode).register(meterRegistry)).increment();
+  }
+
+  public void recordVote(AnimeId id, boolean fake) {
+    add(id, fake ? 1 : 0, 1);
+  }
+
+  public void recordScore(AnimeId id, int ind) {
+    add(id, ind, 1);
+  }
+
+  // Add unflushed deltas so players see their own vote counted
+  public void applyPending(Anime anime) {
+    long[] deltas = pendingDeltas(anime.getId());
+    if (deltas == null) {
+      return;
+    }
+    if (isRating(anime.getId())) {
+      if (anime.getScores() != null) {
+        for (int i = 0; i < anime.getScores().size() && i < deltas.length; i++) {
+          anime.getScores().set(i, anime.getScores().get(i) + (int) deltas[i]);
+        }
+      }
+    } else {
+      anime.setRealVotes(orZero(anime.getRealVotes()) + (int) deltas[0]);
+      anime.setAiVotes(orZero(anime.getAiVotes()) + (int) deltas[1]);
+    }
+  }
+
+  public void applyPending(Manga manga) {
+    long[] deltas = pendingDeltas(manga.getId());
+    if (deltas == null) {
+      return;
+    }
+    manga.setRealVotes(orZero(manga.getRealVotes()) + (int) deltas[0]);
+    manga.setAiVotes(orZero(manga.getAiVotes()) + (int) deltas[1]);
+  }
+
+  private long[] pendingDeltas(AnimeId id) {
+    Tally tally = pending.get(id);
+    LongAdder[] adders = tally != null ? tally.adders : null;
+    long[] flushing = inFlight.get(id);
+    if (adders == null && flushing == null) {
+      return null;
+    }
+    long[] deltas = new long[adders != null ? adders.length : flushing.length];
+    for (int i = 0; i < deltas.length; i++) {
+      deltas[i] = (adders != null ? adders[i].sum() : 0) + (flushing != null ? flushing[i] : 0);
+    }
+    return deltas;
+  }
+
+  @Scheduled(fixedDelayString = "${votes.write-behind.flush-interval:500}")
+  public synchronized void flush() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    flushTimer.record(() -> {
+      Map<Class<?>, Batch> batches = new LinkedHashMap<>();
+      Map<AnimeId, long[]> drained = new HashMap<>();
+      Map<AnimeId, Tally> idle = new HashMap<>();
+
+      for (Map.Entry<AnimeId, Tally> entry : pending.entrySet()) {
+        AnimeId id = entry.getKey();
+        long[] deltas = drain(entry.getValue().adders);
+        if (deltas == null) {
+          idle.put(id, entry.getValue());
+          continue;
+        }
+        drained.put(id, deltas);
+
+        Update update = new Update();
+        for (int i = 0; i < deltas.length; i++) {
+          if (deltas[i] != 0) {
+            update.inc(field(id, i), deltas[i]);
+          }
+        }
+        if (voteShards.isEnabled()) {
+          batch(batches, VoteShard.class).add(id).ops.upsert(voteShards.randomShard(id), update);
+          continue;
+        }
+        Query query = new Query(Criteria.where("_id").is(id));
+        batch(batches, isTitle(id) ? Manga.class : Anime.class).add(id).ops.updateOne(query, update);
+      }
+
+      inFlight = drained;
+      try {
+        for (Batch batch : batches.values()) {
+          execute(batch, drained);
+        }
+      } finally {
+        inFlight = Map.of();
+      }
+      idle.forEach(this::retireIfIdle);
+    });
+  }
+
+  // Drain pending deltas before shutdown
+  @PreDestroy
+  void drainOnShutdown() {
+    flush();
+  }
+
+  // Each bulk succeeds or fails on its own, only the deltas of its failed ops are put back
+  private void execute(Batch batch, Map<AnimeId, long[]> drained) {
+    Set<AnimeId> failed = Set.of();
+    try {
+      batch.ops.execute();
+    } catch (BulkOperationException e) {
+      // Unordered, every op not listed as failed was applied
+      failed = new HashSet<>();
+      for (BulkWriteError error : e.getErrors()) {
+        failed.add(batch.ids.get(error.getIndex()));
+      }
+      log.warn("Vote flush failed for {} of {} puzzles, retrying them next flush", failed.size(), batch.ids.size(), e);
+    } catch (RuntimeException e) {
+      failed = new HashSet<>(batch.ids);
+      log.warn("Vote flush failed, retrying {} puzzles next flush", failed.size(), e);
+    }
+    for (AnimeId id : batch.ids) {
+      long[] deltas = drained.get(id);
+      if (failed.contains(id)) {
+        for (int i = 0; i < deltas.length; i++) {
+          add(id, i, deltas[i]);
+        }
+      } else {
+        // Stored now, a stats read may already have merged them, so reload rather than add
+        puzzleCache.expireCounters(id);
+      }
+    }
+  }
+
+  private Batch batch(Map<Class<?>, Batch> batches, Class<?> type) {
+    return batches.computeIfAbsent(type, Batch::new);
+  }
+
+  // A vote landing on counters being retired waits for the outcome, and is added again if they were dropped
+  private void add(AnimeId id, int slot, long delta) {
+    if (delta == 0) {
+      return;
+    }
+    while (true) {
+      Tally tally = pending.computeIfAbsent(id, key -> new Tally(isRating(key) ? RATING_OPTIONS : 2));
+      tally.adders[slot].add(delta);
+      int state;
+      while ((state = tally.state) == Tally.RETIRING) {
+        Thread.onSpinWait();
+      }
+      if (state == Tally.LIVE) {
+        return;
+      }
+    }
+  }
+
+  // Marked before summing, so a vote either shows up in the sum or sees the mark
+  private void retireIfIdle(AnimeId id, Tally tally) {
+    tally.state = Tally.RETIRING;
+    for (LongAdder adder : tally.adders) {
+      if (adder.sum() != 0) {
+        tally.state = Tally.LIVE;
+        return;
+      }
+    }
+    pending.remove(id, tally);
+    tally.state = Tally.DROPPED;
+  }
+
+  // Subtract what was read rather than resetting, so concurrent votes are kept
+  private static long[] drain(LongAdder[] adders) {
+    long[] deltas = new long[adders.length];
+    boolean any = false;
+    for (int i = 0; i < adders.length; i++) {
+      deltas[i] = adders[i].sum();
+      if (deltas[i] != 0) {
+        adders[i].add(-deltas[i]);
+        any = true;
+      }
+    }
+    return any ? deltas : null;
+  }
+
+  private long pendingVotes() {
+    long total = 0;
+    for (Tally tally : pending.values()) {
+      for (LongAdder adder : tally.adders) {
+        total += adder.sum();
+      }
+    }
+    return total;
+  }
+
+  private static String field(AnimeId id, int slot) {
+    if (isRating(id)) {
+      return "scores." + slot;
+    }
+    return slot == 1 ? "aiVotes" : "realVotes";
+  }
+
+  private static boolean isRating(AnimeId id) {
+    return "rating".equals(id.getMode());
+  }
+
+  private static boolean isTitle(AnimeId id) {
+    return "title".equals(id.getMode());
+  }
+
+  private static int orZero(Integer value) {
+    return value == null ? 0 : value;
+  }
+
+  // The counters of one puzzle, dropped by a flush once they go a whole interval without votes
+  private static final class Tally {
+    static final int LIVE = 0;
+    static final int RETIRING = 1;
+    static final int DROPPED = 2;
+
+    final LongAdder[] adders;
+    volatile int state = LIVE;
+
+    Tally(int slots) {
+      adders = new LongAdder[slots];
+      for (int i = 0; i < slots; i++) {
+        adders[i] = new LongAdder();
+      }
+    }
+  }
+
+  // One bulk and the puzzle of each of its ops, in op order
+  private final class Batch {
+    final BulkOperations ops;
+    final List<AnimeId> ids = new ArrayList<>();
+
+    Batch(Class<?> type) {
+      ops = mongoTemplate.bulkOps(BulkMode.UNORDERED, type);
+    }
+
+    Batch add(AnimeId id) {
+      ids.add(id);
+      return this;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.validation;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.services.CaptchaService;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import reactor.core.publisher.Mono;
+
+// Validates vote bodies for reactive controllers, where the blocking @Captcha check cannot run
+@Component
+public class ReactiveVoteValidator {
+  @Autowired
+  private Validator validator;
+
+  @Autowired
+  private CaptchaService captchaService;
+
+  public Mono<Void> validate(Object vote, String captchaToken, String... properties) {
+    Set<ConstraintViolation<Object>> violations = new HashSet<>();
+    for (String property : properties) {
+      violations.addAll(validator.validateProperty(vote, property));
+    }
+    if (!violations.isEmpty()) {
+      return Mono.error(new ConstraintViolationException(violations));
+    }
+    return captchaService.require(captchaToken);
+  }
+}
@@ -0,0 +1,102 @@
+package com.example.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class SingleFlightTest {
+  private static final int CALLERS = 8;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final SingleFlight<String, String> flight = new SingleFlight<>("test", meterRegistry);
+  private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void concurrentCallersShareTheLeadersError() throws Exception {
+    IllegalStateException error = new IllegalStateException("Jikan is down");
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger loads = new AtomicInteger();
+
+    List<Future<RuntimeException>> callers = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++) {
+      callers.add(executor.submit(() -> assertThrows(RuntimeException.class, () -> flight.call("52991", () -> {
+        loads.incrementAndGet();
+        await(release);
+        throw error;
+      }))));
+    }
+    // Fails only once every other caller waits on the leader
+    awaitCoalesced(CALLERS - 1);
+    release.countDown();
+
+    for (Future<RuntimeException> caller : callers) {
+      assertSame(error, caller.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, loads.get());
+    assertEquals("ok", flight.call("52991", () -> "ok"));
+  }
+
+  @Test
+  void concurrentAsyncCallersShareTheLeadersError() throws Exception {
+    IllegalStateException error = new IllegalStateException("Jikan is down");
+    CompletableFuture<String> load = new CompletableFuture<>();
+    AtomicInteger loads = new AtomicInteger();
+
+    List<CompletableFuture<String>> callers = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++) {
+      callers.add(flight.callAsync("52991", () -> {
+        loads.incrementAndGet();
+        return Mono.fromFuture(load);
+      }).toFuture());
+    }
+    awaitCoalesced(CALLERS - 1);
+    load.completeExceptionally(error);
+
+    for (CompletableFuture<String> caller : callers) {
+      ExecutionException thrown = assertThrows(ExecutionException.class, () -> caller.get(5, TimeUnit.SECONDS));
+      assertSame(error, thrown.getCause());
+    }
+    assertEquals(1, loads.get());
+    assertEquals("ok", flight.callAsync("52991", () -> Mono.just("ok")).block(Duration.ofSeconds(5)));
+  }
+
+  private void awaitCoalesced(int callers) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (meterRegistry.get("single.flight.calls").tag("role", "coalesced").counter().count() < callers
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(callers, (int) meterRegistry.get("single.flight.calls").tag("role", "coalesced").counter().count());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package com.example.demo.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.AnimeAPIResponse.AnimeAPIData;
+import com.example.demo.dto.AnimeAPIResponse.Genre;
+import com.example.demo.dto.AnimeAPIResponse.ImageType;
+import com.example.demo.dto.AnimeAPIResponse.Images;
+import com.example.demo.dto.MangaAPIResponse.MangaAPIData;
+import com.example.demo.dto.MangaAPIResponse.Published;
+
+class CatalogCodecTest {
+  @Test
+  void animeRoundTrip() {
+    AnimeAPIData data = new AnimeAPIData();
+    data.setMal_id("52991");
+    data.setType("TV");
+    data.setTitle("Sousou no Frieren");
+    data.setAired(published("Sep 29, 2023 to Mar 22, 2024"));
+    data.setYear(2023);
+    data.setScore(9.31);
+    data.setMembers(650000);
+    data.setEpisodes(28);
+    data.setSynopsis("x".repeat(200));
+    data.setGenres(List.of(genre("Adventure"), genre("Drama"), genre("Fantasy")));
+    data.setImages(images("https://cdn.myanimelist.net/images/anime/1015/138006l.jpg"));
+
+    ByteBuffer record = CatalogCodec.encode(data, 1720000000L);
+    AnimeAPIData decoded = CatalogCodec.decodeAnime(record, 0);
+
+    assertEquals(record.limit() - 4, record.getInt(0));
+    assertEquals(CatalogCodec.ANIME, record.get(CatalogCodec.KIND));
+    assertEquals(1720000000L, record.getLong(CatalogCodec.FETCHED_AT));
+    assertEquals("52991", decoded.getMal_id());
+    assertEquals("TV", decoded.getType());
+    assertEquals("Sousou no Frieren", decoded.getTitle());
+    assertEquals("Sep 29, 2023 to Mar 22, 2024", decoded.getAired().getString());
+    assertEquals(2023, decoded.getYear());
+    assertEquals(9.31, decoded.getScore());
+    assertEquals(650000, decoded.getMembers());
+    assertEquals(28, decoded.getEpisodes());
+    assertEquals(List.of("Adventure", "Drama", "Fantasy"), decoded.getGenres().stream().map(Genre::getName).toList());
+    assertEquals("https://cdn.myanimelist.net/images/anime/1015/138006l.jpg",
+        decoded.getImages().getJpg().getLarge_image_url());
+    assertTrue(CatalogCodec.isDecoy(record, 0));
+  }
+
+  @Test
+  void missingAnimeValuesStayMissing() {
+    AnimeAPIData data = new AnimeAPIData();
+    data.setMal_id("1");
+
+    ByteBuffer record = CatalogCodec.encode(data, 0L);
+    AnimeAPIData decoded = CatalogCodec.decodeAnime(record, 0);
+
+    assertNull(decoded.getType());
+    assertNull(decoded.getTitle());
+    assertNull(decoded.getAired());
+    assertNull(decoded.getYear());
+    assertNull(decoded.getScore());
+    assertNull(decoded.getMembers());
+    assertNull(decoded.getEpisodes());
+    assertNull(decoded.getGenres());
+    assertNull(decoded.getImages().getJpg().getLarge_image_url());
+    assertFalse(CatalogCodec.isDecoy(record, 0));
+  }
+
+  @Test
+  void zeroIsNotMissing() {
+    AnimeAPIData data = new AnimeAPIData();
+    data.setMal_id("1");
+    data.setType("");
+    data.setScore(0.0);
+    data.setMembers(0);
+    data.setGenres(List.of());
+
+    AnimeAPIData decoded = CatalogCodec.decodeAnime(CatalogCodec.encode(data, 0L), 0);
+
+    assertEquals("", decoded.getType());
+    assertEquals(0.0, decoded.getScore());
+    assertEquals(0, decoded.getMembers());
+    assertEquals(List.of(), decoded.getGenres());
+  }
+
+  @Test
+  void longStringsAreCutOnACharacterBoundary() {
+    AnimeAPIData data = new AnimeAPIData();
+    data.setMal_id("1");
+    // Two bytes each, Short.MAX_VALUE falls in the middle of one
+    data.setTitle("é".repeat(20000));
+    data.setType("TV");
+
+    AnimeAPIData decoded = CatalogCodec.decodeAnime(CatalogCodec.encode(data, 0L), 0);
+
+    assertEquals("é".repeat(Short.MAX_VALUE / 2), decoded.getTitle());
+    assertEquals("TV", decoded.getType());
+  }
+
+  @Test
+  void mangaRoundTrip() {
+    MangaAPIData data = new MangaAPIData();
+    data.setMal_id("2");
+    data.setType("Light Novel");
+    data.setPublished(published("Aug 25, 1989 to ?"));
+    data.setScore(9.47);
+    data.setMembers(750000);
+    data.setVolumes(41);
+    data.setGenres(List.of(genre("Action")));
+
+    ByteBuffer record = CatalogCodec.encode(data, 42L);
+    MangaAPIData decoded = CatalogCodec.decodeManga(record, 0);
+
+    assertEquals(CatalogCodec.MANGA, record.get(CatalogCodec.KIND));
+    assertEquals("2", decoded.getMal_id());
+    assertEquals("Light Novel", decoded.getType());
+    assertEquals("lightnovel", CatalogCodec.typeKey(CatalogCodec.typeAt(record, 0)));
+    assertEquals("Aug 25, 1989 to ?", decoded.getPublished().getString());
+    assertEquals(9.47, decoded.getScore());
+    assertEquals(750000, decoded.getMembers());
+    assertNull(decoded.getChapters());
+    assertEquals(41, decoded.getVolumes());
+    assertEquals(List.of("Action"), decoded.getGenres().stream().map(Genre::getName).toList());
+    assertTrue(CatalogCodec.isDecoy(record, 0));
+  }
+
+  @Test
+  void decodesAtAnOffset() {
+    MangaAPIData first = new MangaAPIData();
+    first.setMal_id("3");
+    MangaAPIData second = new MangaAPIData();
+    second.setMal_id("4");
+    second.setType("Manga");
+    ByteBuffer a = CatalogCodec.encode(first, 0L);
+    ByteBuffer b = CatalogCodec.encode(second, 0L);
+    ByteBuffer file = ByteBuffer.allocate(a.limit() + b.limit()).put(a).put(b).flip();
+
+    MangaAPIData decoded = CatalogCodec.decodeManga(file, a.limit());
+
+    assertEquals("4", decoded.getMal_id());
+    assertEquals("Manga", decoded.getType());
+  }
+
+  private static Published published(String string) {
+    Published published = new Published();
+    published.setString(string);
+    return published;
+  }
+
+  private static Genre genre(String name) {
+    Genre genre = new Genre();
+    genre.setName(name);
+    return genre;
+  }
+
+  private static Images images(String url) {
+    ImageType jpg = new ImageType();
+    jpg.setLarge_image_url(url);
+    Images images = new Images();
+    images.setJpg(jpg);
+    return images;
+  }
+}
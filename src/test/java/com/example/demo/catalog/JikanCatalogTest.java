@@ -0,0 +1,183 @@
+package com.example.demo.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.example.demo.dto.AnimeAPIResponse.AnimeAPIData;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class JikanCatalogTest {
+  @TempDir
+  Path dir;
+
+  private JikanCatalog catalog;
+
+  @AfterEach
+  void close() {
+    if (catalog != null) {
+      catalog.close();
+    }
+  }
+
+  @Test
+  void reopensCatalogWithLastRecordCutShort() throws Exception {
+    Path file = dir.resolve("catalog.bin");
+    ByteBuffer complete = CatalogCodec.encode(anime("1", "TV"), 100L);
+    ByteBuffer cut = CatalogCodec.encode(anime("2", "Movie"), 100L);
+    int completeLength = complete.limit();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(4).putInt(CatalogCodec.MAGIC).flip());
+      channel.write(complete);
+      channel.write(cut.limit(cut.limit() - 3));
+    }
+
+    catalog = open(file);
+
+    assertTrue(catalog.isEnabled());
+    assertEquals("TV", catalog.getAnime("1", null).map(AnimeAPIData::getType).orElse(null));
+    assertEquals(Optional.empty(), catalog.getAnime("2", null));
+    assertEquals(4 + completeLength, Files.size(file));
+
+    // Appended after the truncated bytes, so the new record is found again after a restart
+    catalog.putAnime(List.of(anime("3", "OVA")));
+    awaitAnime(catalog, "3");
+    catalog.close();
+    catalog = open(file);
+
+    assertEquals("TV", catalog.getAnime("1", null).map(AnimeAPIData::getType).orElse(null));
+    assertEquals("OVA", catalog.getAnime("3", null).map(AnimeAPIData::getType).orElse(null));
+    assertEquals(Optional.empty(), catalog.getAnime("2", null));
+  }
+
+  @Test
+  void reopensCatalogWithLengthPrefixCutShort() throws Exception {
+    Path file = dir.resolve("catalog.bin");
+    ByteBuffer complete = CatalogCodec.encode(anime("1", "TV"), 100L);
+    int completeLength = complete.limit();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(4).putInt(CatalogCodec.MAGIC).flip());
+      channel.write(complete);
+      channel.write(ByteBuffer.wrap(new byte[] { 0, 0 }));
+    }
+
+    catalog = open(file);
+
+    assertEquals("TV", catalog.getAnime("1", null).map(AnimeAPIData::getType).orElse(null));
+    assertEquals(4 + completeLength, Files.size(file));
+  }
+
+  @Test
+  void readsAppendsFromTheBufferAndAfterRemapping() throws Exception {
+    Path file = dir.resolve("catalog.bin");
+    // Room for a few records, so the appends below cross into a remap more than once
+    catalog = open(file, DataSize.ofBytes(3 * CatalogCodec.encode(anime("1", "TV"), 0L).limit()));
+
+    for (int i = 1; i <= 20; i++) {
+      catalog.putAnime(List.of(anime(Integer.toString(i), "TV " + i)));
+      awaitAnime(catalog, Integer.toString(i));
+    }
+    for (int i = 1; i <= 20; i++) {
+      assertEquals("TV " + i, catalog.getAnime(Integer.toString(i), null).map(AnimeAPIData::getType).orElse(null));
+    }
+    catalog.close();
+    catalog = open(file);
+
+    for (int i = 1; i <= 20; i++) {
+      assertEquals("TV " + i, catalog.getAnime(Integer.toString(i), null).map(AnimeAPIData::getType).orElse(null));
+    }
+  }
+
+  @Test
+  void newerRecordsMoveDecoysBetweenTypes() throws Exception {
+    Path file = dir.resolve("catalog.bin");
+    catalog = open(file);
+
+    catalog.putAnime(List.of(decoy("7", "TV")));
+    awaitSample(catalog, "tv", List.of("7"));
+
+    catalog.putAnime(List.of(decoy("7", "Movie")));
+    awaitSample(catalog, "movie", List.of("7"));
+    assertEquals(List.of(), sampleIds(catalog, "tv"));
+
+    // No longer a decoy without a score
+    catalog.putAnime(List.of(anime("7", "Movie")));
+    awaitSample(catalog, "movie", List.of());
+
+    catalog.close();
+    catalog = open(file);
+    assertEquals(List.of(), sampleIds(catalog, "tv"));
+    assertEquals(List.of(), sampleIds(catalog, "movie"));
+  }
+
+  private static JikanCatalog open(Path file) {
+    return open(file, DataSize.ofMegabytes(4));
+  }
+
+  private static JikanCatalog open(Path file, DataSize appendBuffer) {
+    JikanCatalog catalog = new JikanCatalog();
+    ReflectionTestUtils.setField(catalog, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(catalog, "path", file.toString());
+    ReflectionTestUtils.setField(catalog, "appendBuffer", appendBuffer);
+    catalog.init();
+    return catalog;
+  }
+
+  // Appends run in the background
+  private static void awaitAnime(JikanCatalog catalog, String malId) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (catalog.getAnime(malId, null).isEmpty()) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("Record " + malId + " was not appended");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  // The decoy lists are updated after the index
+  private static void awaitSample(JikanCatalog catalog, String type, List<String> malIds)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!malIds.equals(sampleIds(catalog, type))) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("Sample of " + type + " was " + sampleIds(catalog, type) + ", not " + malIds);
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private static List<String> sampleIds(JikanCatalog catalog, String type) {
+    return catalog.sampleAnime(type, 1, 1, new Random(0)).stream().map(AnimeAPIData::getMal_id).toList();
+  }
+
+  // Scored and with a long synopsis, so it can be drawn as a decoy
+  private static AnimeAPIData decoy(String malId, String type) {
+    AnimeAPIData data = anime(malId, type);
+    data.setScore(7.5);
+    data.setSynopsis("x".repeat(200));
+    return data;
+  }
+
+  private static AnimeAPIData anime(String malId, String type) {
+    AnimeAPIData data = new AnimeAPIData();
+    data.setMal_id(malId);
+    data.setType(type);
+    return data;
+  }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.example.demo.models.Anime.AnimeId;
+
+class DecoyEngineTest {
+  private static final int AMOUNT = 4;
+  private static final AnimeId ID = new AnimeId("2024-07-01", "rating");
+
+  @ParameterizedTest
+  @ValueSource(doubles = { 0.0, 0.01, 0.5, 4.2, 8.9, 9.34, 9.35 })
+  void optionsAreAtLeastHalfAPointApart(double score) {
+    for (long seed = 0; seed < 2000; seed++) {
+      List<Double> options = DecoyEngine.ratingOptions(score, AMOUNT, DecoyEngine.forPuzzle(seed, ID));
+
+      assertEquals(AMOUNT, options.size());
+      assertTrue(options.contains(score), () -> options + " lacks " + score);
+      List<Double> sorted = new ArrayList<>(options);
+      sorted.sort(null);
+      assertEquals(sorted, options);
+      for (int i = 0; i < options.size(); i++) {
+        assertTrue(options.get(i) >= 0.0 && options.get(i) <= 9.35, () -> options + " out of range");
+        if (i > 0) {
+          long gap = Math.round(options.get(i) * 100) - Math.round(options.get(i - 1) * 100);
+          assertTrue(gap >= 50, () -> options + " closer than 0.5");
+        }
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(doubles = { 0.0, 7.77, 9.35 })
+  void sameSeedGivesSameOptions(double score) {
+    for (long seed = 0; seed < 100; seed++) {
+      assertEquals(DecoyEngine.ratingOptions(score, AMOUNT, DecoyEngine.forPuzzle(seed, ID)),
+          DecoyEngine.ratingOptions(score, AMOUNT, DecoyEngine.forPuzzle(seed, ID)));
+    }
+  }
+}
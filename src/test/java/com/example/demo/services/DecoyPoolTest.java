@@ -0,0 +1,44 @@
+package com.example.demo.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+
+class DecoyPoolTest {
+  private static final int MAX_EMPTY_PAGES = 3;
+
+  @Test
+  void waitingDrawFailsAfterEmptyPagesInARow() {
+    AtomicInteger pages = new AtomicInteger();
+    DecoyPool<Integer> pool = new DecoyPool<>(type -> {
+      pages.incrementAndGet();
+      return Mono.just(List.of(-1, -2));
+    }, value -> value > 0, 10, MAX_EMPTY_PAGES, new Random(0));
+
+    IllegalStateException thrown = assertThrows(IllegalStateException.class,
+        () -> pool.draw("tv").block(Duration.ofSeconds(5)));
+
+    assertEquals("No eligible tv decoys in " + MAX_EMPTY_PAGES + " pages in a row", thrown.getMessage());
+    assertEquals(MAX_EMPTY_PAGES, pages.get());
+  }
+
+  @Test
+  void eligiblePageResetsTheEmptyCount() {
+    AtomicInteger pages = new AtomicInteger();
+    DecoyPool<Integer> pool = new DecoyPool<>(type -> {
+      // Only every third page has anything eligible
+      int page = pages.incrementAndGet();
+      return Mono.just(page % MAX_EMPTY_PAGES == 0 ? List.of(page) : List.of(-page));
+    }, value -> value > 0, 1, MAX_EMPTY_PAGES, new Random(0));
+
+    assertEquals(MAX_EMPTY_PAGES, pool.draw("tv").block(Duration.ofSeconds(5)));
+  }
+}